@@ -0,0 +1,87 @@
+package com.poscatcafe.bench;
+
+import com.poscatcafe.CatCafePosApplication;
+import com.poscatcafe.dto.AuthPrincipal;
+import com.poscatcafe.dto.LoginRequestDTO;
+import com.poscatcafe.model.Employee;
+import com.poscatcafe.repository.EmployeeRepository;
+import com.poscatcafe.service.AuthService;
+import com.poscatcafe.service.SessionStore;
+import com.poscatcafe.support.EmbeddedPostgresInitializer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * เวลาตรวจโทเคนต่อคำขอใน AuthFilter: AuthService.authenticate (ข้อมูลผู้ใช้จากแคช LRU) เทียบกับการอ่านพนักงาน
+ * จากฐานข้อมูลทุกคำขอ ทั้งที่เก็บเซสชันแบบ memory และ jdbc บน PostgreSQL แบบฝังตัว
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthBenchmark {
+    @Param({"memory", "jdbc"})
+    public String sessionStore;
+
+    private ConfigurableApplicationContext context;
+    private AuthService authService;
+    private SessionStore sessions;
+    private EmployeeRepository employeeRepository;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(CatCafePosApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(new EmbeddedPostgresInitializer())
+                .profiles("test")
+                .properties(
+                        "pos.session.store=" + sessionStore,
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "logging.level.root=WARN")
+                .run();
+        authService = context.getBean(AuthService.class);
+        sessions = context.getBean(SessionStore.class);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+
+        LoginRequestDTO login = new LoginRequestDTO();
+        login.setUsername("admin");
+        login.setPassword("admin123");
+        token = authService.login(login).join().getSessionToken();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AuthPrincipal cachedPrincipal() {
+        return authService.authenticate(token);
+    }
+
+    @Benchmark
+    public AuthPrincipal employeeLookup() {
+        // สิ่งที่ต้องทำทุกคำขอหากไม่มีแคช: ตรวจเซสชันแล้วอ่านพนักงานจากฐานข้อมูล
+        Long employeeId = sessions.touch(token);
+        Employee employee = employeeRepository.findById(employeeId).orElseThrow();
+        return new AuthPrincipal(employee.getId(), employee.getUsername(), employee.getName(), employee.getRole());
+    }
+}
@@ -0,0 +1,94 @@
+package com.poscatcafe.bench;
+
+import com.poscatcafe.service.QrCodeService;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * เวลาต่อ QR พร้อมเพย์หนึ่งภาพ: วิธีเดิม (ข้อความไม่มี CRC วาดทีละพิกเซลด้วย setRGB) เทียบกับ QrCodeService
+ * ทั้งกรณียอดใหม่ที่ต้องเรนเดอร์ และยอดเดิมที่อยู่ในแคช
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QrCodeBenchmark {
+    private static final String PROMPTPAY_ID = "0812345678";
+    private static final long AMOUNT = 12_550;
+
+    private QrCodeService service;
+    private long uncachedAmount;
+
+    @Setup
+    public void setUp() {
+        service = new QrCodeService();
+        service.promptPayQrBase64(PROMPTPAY_ID, AMOUNT);
+        uncachedAmount = 1;
+    }
+
+    @Benchmark
+    public String legacy() throws WriterException, IOException {
+        return legacyQr(PROMPTPAY_ID, AMOUNT / 100.0);
+    }
+
+    @Benchmark
+    public String serviceUncached() {
+        // ยอดที่ไม่เคยเห็นทุกครั้ง จึงไม่ตรงกับแคช
+        return service.promptPayQrBase64(PROMPTPAY_ID, uncachedAmount++);
+    }
+
+    @Benchmark
+    public String serviceCached() {
+        return service.promptPayQrBase64(PROMPTPAY_ID, AMOUNT);
+    }
+
+    /**
+     * PaymentService.generateQRCode ก่อนมี QrCodeService (ไม่รวมการอ่านค่าตั้งร้าน)
+     */
+    private static String legacyQr(String promptPayId, double amount) throws WriterException, IOException {
+        String qrData = String.format("00020101021229370016A000000677010111011%s5303764540%.2f6304",
+                promptPayId, amount);
+
+        QRCodeWriter qrCodeWriter = new QRCodeWriter();
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+
+        BitMatrix bitMatrix = qrCodeWriter.encode(qrData, BarcodeFormat.QR_CODE, 200, 200, hints);
+
+        BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 200; x++) {
+            for (int y = 0; y < 200; y++) {
+                image.setRGB(x, y, bitMatrix.get(x, y) ? Color.BLACK.getRGB() : Color.WHITE.getRGB());
+            }
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "PNG", outputStream);
+        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    }
+}
@@ -0,0 +1,159 @@
+package com.poscatcafe.bench;
+
+import com.poscatcafe.model.Order;
+import com.poscatcafe.model.OrderItem;
+import com.poscatcafe.service.ReceiptService;
+import com.poscatcafe.service.StoreSettingService;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * เวลาสร้างใบเสร็จ HTML หนึ่งใบ: วิธีเดิม (StringBuilder ใหม่ทุกครั้งและ String.format ทุกยอดเงิน)
+ * เทียบกับ ReceiptService ที่เรนเดอร์จากแม่แบบที่คอมไพล์ไว้ลงบัฟเฟอร์ที่ใช้ซ้ำ สำหรับออเดอร์ 5 และ 50 รายการ
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+    private static final StoreSettingService.Snapshot SETTINGS = new StoreSettingService.Snapshot(
+            "Cat Café Ari", "99/1 Phahonyothin Road, Bangkok", "02-123-4567", "0105500000000", "0812345678");
+
+    @Param({"5", "50"})
+    public int items;
+
+    private ReceiptService service;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        StoreSettingService settings = new StoreSettingService(null, 0) {
+            @Override
+            public Snapshot snapshot() {
+                return SETTINGS;
+            }
+        };
+        service = new ReceiptService(settings, new DefaultResourceLoader(), "classpath:receipt/receipt.html");
+
+        order = new Order();
+        order.setId(12_345L);
+        order.setReceiptNo("20261018-000123");
+        order.setOrderDate(LocalDateTime.of(2026, 10, 18, 14, 30));
+        order.setCustomerName("คุณแมวเหมียว");
+        long total = 0;
+        for (int i = 0; i < items; i++) {
+            OrderItem item = new OrderItem();
+            item.setProductName("ลาเต้เย็น แก้วที่ " + (i + 1));
+            item.setQuantity(1 + i % 3);
+            item.setPrice(4_550 + i * 100L);
+            item.setSubtotal(item.getPrice() * item.getQuantity());
+            order.getItems().add(item);
+            total += item.getSubtotal();
+        }
+        order.setDiscountAmount(4_550);
+        order.setTotalAmount(total - 4_550);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyReceiptHtml(order, SETTINGS);
+    }
+
+    @Benchmark
+    public String service() {
+        return service.generateReceiptHtml(order);
+    }
+
+    /**
+     * ReceiptService.generateReceiptHtml ก่อนใช้แม่แบบ (ไม่รวมการอ่านค่าตั้งร้านจากฐานข้อมูล)
+     * ยอดเงินสมัยนั้นเป็น double จึงแปลงจากสตางค์ก่อน String.format เหมือนเดิม
+     */
+    private static String legacyReceiptHtml(Order order, StoreSettingService.Snapshot settings) {
+        String shopName = settings.shopName() != null ? settings.shopName() : "🐱 Cat Café POS";
+        String shopAddress = settings.address() != null ? settings.address() : "123 Cat Street";
+        String shopPhone = settings.phone() != null ? settings.phone() : "02-123-4567";
+        String taxId = settings.taxId() != null ? settings.taxId() : "1234567890123";
+
+        StringBuilder html = new StringBuilder();
+        html.append("<div class='receipt'>");
+
+        // Header
+        html.append("<div class='receipt-header'>");
+        html.append("<div class='receipt-title'>").append(shopName).append("</div>");
+        html.append("<div>").append(shopAddress).append("</div>");
+        html.append("<div>โทร: ").append(shopPhone).append("</div>");
+        html.append("<div>เลขประจำตัวผู้เสียภาษี: ").append(taxId).append("</div>");
+        html.append("</div>");
+
+        // Order details
+        html.append("<div style='text-align: center; margin: 15px 0;'>");
+        html.append("<div><strong>ใบเสร็จรับเงิน</strong></div>");
+        html.append("<div>เลขที่: ").append(String.format("R%06d", order.getId())).append("</div>");
+        html.append("<div>วันที่: ").append(order.getOrderDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</div>");
+        if (order.getCustomerName() != null && !order.getCustomerName().isEmpty()) {
+            html.append("<div>ลูกค้า: ").append(order.getCustomerName()).append("</div>");
+        }
+        html.append("</div>");
+
+        // Items
+        html.append("<div style='border-top: 1px dashed #666; padding-top: 10px;'>");
+        double subtotal = 0.0;
+        for (OrderItem item : order.getItems()) {
+            html.append("<div class='receipt-item'>");
+            html.append("<span>").append(item.getProductName()).append("</span>");
+            html.append("<span>").append(String.format("%.2f", item.getSubtotal() / 100.0)).append("</span>");
+            html.append("</div>");
+            html.append("<div class='receipt-item-details'>");
+            html.append("จำนวน ").append(item.getQuantity()).append(" x ").append(String.format("%.2f", item.getPrice() / 100.0));
+            html.append("</div>");
+            subtotal += item.getSubtotal() / 100.0;
+        }
+        html.append("</div>");
+
+        // Totals
+        html.append("<div class='receipt-total'>");
+        html.append("<div class='receipt-item'>");
+        html.append("<span>รวมย่อย:</span>");
+        html.append("<span>฿").append(String.format("%.2f", subtotal)).append("</span>");
+        html.append("</div>");
+
+        if (order.getDiscountAmount() > 0) {
+            html.append("<div class='receipt-item'>");
+            html.append("<span>ส่วนลด:</span>");
+            html.append("<span>-฿").append(String.format("%.2f", order.getDiscountAmount() / 100.0)).append("</span>");
+            html.append("</div>");
+        }
+
+        html.append("<div class='receipt-item' style='font-size: 1.2em; font-weight: bold;'>");
+        html.append("<span>รวมทั้งสิ้น:</span>");
+        html.append("<span>฿").append(String.format("%.2f", order.getTotalAmount() / 100.0)).append("</span>");
+        html.append("</div>");
+        html.append("</div>");
+
+        // Footer
+        html.append("<div style='text-align: center; margin-top: 15px; border-top: 1px dashed #666; padding-top: 10px;'>");
+        html.append("<div>*** ขอบคุณที่ใช้บริการ ***</div>");
+        html.append("<div>🐱 Cat Café POS System</div>");
+        html.append("</div>");
+
+        html.append("</div>");
+
+        return html.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.poscatcafe.config;
+
+import com.poscatcafe.dto.AuthPrincipal;
+import com.poscatcafe.service.AuthService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * ตรวจสอบโทเคนเซสชันในส่วนหัว Authorization ของทุกคำขอ /api/** (ยกเว้นการเข้าสู่ระบบ/ตรวจสอบ/ออกจากระบบ)
+ * คำขอที่ผ่านจะมี AuthPrincipal แนบเป็น attribute ส่วนคำขอที่ไม่ผ่านจะได้ 401
+ */
+public class AuthFilter extends OncePerRequestFilter {
+    private static final Set<String> PUBLIC_PATHS = Set.of("/api/auth/login", "/api/auth/validate", "/api/auth/logout");
+    private static final byte[] UNAUTHORIZED_BODY =
+            "{\"success\":false,\"message\":\"กรุณาเข้าสู่ระบบ\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final AuthService authService;
+
+    /**
+     * สร้างตัวกรองพร้อมบริการยืนยันตัวตน
+     */
+    public AuthFilter(AuthService authService) {
+        this.authService = authService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/")
+                || PUBLIC_PATHS.contains(path)
+                || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AuthPrincipal principal = authService.authenticate(request.getHeader("Authorization"));
+        if (principal == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(UNAUTHORIZED_BODY.length);
+            response.getOutputStream().write(UNAUTHORIZED_BODY);
+            return;
+        }
+        request.setAttribute(AuthPrincipal.ATTRIBUTE, principal);
+        chain.doFilter(request, response);
+    }
+}
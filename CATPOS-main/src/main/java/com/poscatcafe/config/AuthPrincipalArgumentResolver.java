@@ -0,0 +1,27 @@
+package com.poscatcafe.config;
+
+import com.poscatcafe.dto.AuthPrincipal;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * ส่ง AuthPrincipal ที่ AuthFilter แนบไว้ให้กับพารามิเตอร์ของคอนโทรลเลอร์
+ */
+public class AuthPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        return webRequest.getAttribute(AuthPrincipal.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
@@ -1,20 +1,27 @@
 package com.poscatcafe.config;
 
+import com.poscatcafe.service.AuthService;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 /**
- * กำหนดค่าการให้บริการไฟล์คงที่ เช่น ไฟล์ที่อัปโหลดไว้ในระบบ
+ * กำหนดค่าการให้บริการไฟล์คงที่ เช่น ไฟล์ที่อัปโหลดไว้ในระบบ และการยืนยันตัวตนของ API
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
     /**
      * เพิ่มตัวจัดการทรัพยากรเพื่อให้เสิร์ฟไฟล์ภายใต้โฟลเดอร์ uploads ผ่าน HTTP
+     * (รูปสินค้าใต้ /uploads/products/ เสิร์ฟโดย ProductImageController พร้อม cache header)
      */
     @Override
     public void addResourceHandlers(@org.springframework.lang.NonNull ResourceHandlerRegistry registry) {
@@ -24,4 +31,22 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations(uploadPath);
     }
+
+    /**
+     * ลงทะเบียนตัวกรองยืนยันตัวตนให้ทำงานกับทุกคำขอภายใต้ /api/
+     */
+    @Bean
+    public FilterRegistrationBean<AuthFilter> authFilter(AuthService authService) {
+        FilterRegistrationBean<AuthFilter> registration = new FilterRegistrationBean<>(new AuthFilter(authService));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * ให้คอนโทรลเลอร์รับผู้ใช้ปัจจุบันเป็นพารามิเตอร์ชนิด AuthPrincipal ได้
+     */
+    @Override
+    public void addArgumentResolvers(@org.springframework.lang.NonNull List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new AuthPrincipalArgumentResolver());
+    }
 }
@@ -5,8 +5,13 @@ import com.poscatcafe.dto.LoginResponseDTO;
 import com.poscatcafe.service.AuthService;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * จัดการการยืนยันตัวตน เช่น การล็อกอิน ล็อกเอาต์ และตรวจสอบเซสชันของผู้ใช้
@@ -14,6 +19,8 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
+    private static final int LOGIN_RETRY_AFTER_SECONDS = 1;
+
     private final AuthService authService;
 
     /**
@@ -25,10 +32,17 @@ public class AuthController {
 
     /**
      * รับคำขอเข้าสู่ระบบและส่งต่อให้บริการตรวจสอบข้อมูลผู้ใช้
+     * ตอบกลับแบบ async เพื่อคืนเธรดของ Tomcat ระหว่างตรวจรหัสผ่าน และตอบ 503 พร้อม Retry-After เมื่อคิวตรวจรหัสผ่านเต็ม
      */
     @PostMapping("/login")
-    public LoginResponseDTO login(@Valid @RequestBody LoginRequestDTO request) {
-        return authService.login(request);
+    public CompletableFuture<ResponseEntity<LoginResponseDTO>> login(@Valid @RequestBody LoginRequestDTO request) {
+        try {
+            return authService.login(request).thenApply(ResponseEntity::ok);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(LOGIN_RETRY_AFTER_SECONDS))
+                    .body(new LoginResponseDTO(false, "มีผู้เข้าสู่ระบบพร้อมกันจำนวนมาก กรุณาลองใหม่อีกครั้ง")));
+        }
     }
 
     /**
@@ -0,0 +1,95 @@
+package com.poscatcafe.controller;
+
+import com.poscatcafe.dto.AuthPrincipal;
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.CartSessionDTO;
+import com.poscatcafe.service.CartSessionService;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.List;
+
+/**
+ * ตะกร้าที่เก็บไว้ฝั่งเซิร์ฟเวอร์: สร้างครั้งเดียวแล้วส่งเฉพาะรายการที่เปลี่ยน เซิร์ฟเวอร์คืนยอดรวม ส่วนลด และแต้มล่าสุด
+ * ตะกร้าเป็นของผู้ใช้ที่สร้าง และหายไปเมื่อไม่ได้ใช้นานเกินกำหนด (ตอบ 404 ให้เครื่องขายสร้างใหม่)
+ */
+@RestController
+@RequestMapping("/api/carts")
+public class CartSessionController {
+    private final CartSessionService cartSessionService;
+
+    /**
+     * สร้างคอนโทรลเลอร์พร้อมบริการตะกร้า
+     */
+    public CartSessionController(CartSessionService cartSessionService) {
+        this.cartSessionService = cartSessionService;
+    }
+
+    /**
+     * สร้างตะกร้าใหม่ พร้อมรายการเริ่มต้น (ถ้ามี ใช้เฉพาะรหัสสินค้าและจำนวน) และลูกค้าที่เลือก
+     */
+    @PostMapping
+    public ResponseEntity<CartSessionDTO> create(
+            @RequestBody(required = false) List<CartItemDTO> items,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false, defaultValue = "false") Boolean useCoupon,
+            AuthPrincipal principal) {
+        CartSessionDTO cart = cartSessionService.create(owner(principal), items, customerId, useCoupon);
+        return ResponseEntity.status(HttpStatus.CREATED).body(cart);
+    }
+
+    /**
+     * ดึงตะกร้าพร้อมรายการทั้งหมด
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<CartSessionDTO> get(@PathVariable String id, AuthPrincipal principal) {
+        return orNotFound(cartSessionService.get(id, owner(principal)));
+    }
+
+    /**
+     * กำหนดจำนวนของสินค้าหนึ่งรายการ (0 คือเอาออก) ตอบ 409 พร้อมยอดเดิมหากสต็อกไม่พอ
+     */
+    @PatchMapping("/{id}/lines")
+    public ResponseEntity<CartSessionDTO> updateLine(
+            @PathVariable String id, @RequestBody CartItemDTO line, AuthPrincipal principal) {
+        if (line.getProductId() == null || line.getQuantity() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        CartSessionDTO cart = cartSessionService.updateLine(id, owner(principal), line.getProductId(), line.getQuantity());
+        if (cart != null && cart.getErrorMessage() != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(cart);
+        }
+        return orNotFound(cart);
+    }
+
+    /**
+     * เปลี่ยนลูกค้าหรือการใช้คูปองของตะกร้า
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<CartSessionDTO> updateCustomer(
+            @PathVariable String id,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false, defaultValue = "false") Boolean useCoupon,
+            AuthPrincipal principal) {
+        return orNotFound(cartSessionService.updateCustomer(id, owner(principal), customerId, useCoupon));
+    }
+
+    /**
+     * ทิ้งตะกร้า
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> discard(@PathVariable String id, AuthPrincipal principal) {
+        return cartSessionService.discard(id, owner(principal))
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static Long owner(AuthPrincipal principal) {
+        return principal != null ? principal.employeeId() : null;
+    }
+
+    private static ResponseEntity<CartSessionDTO> orNotFound(CartSessionDTO cart) {
+        return cart != null ? ResponseEntity.ok(cart) : ResponseEntity.notFound().build();
+    }
+}
@@ -5,7 +5,9 @@ import com.poscatcafe.service.CustomerService;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * จัดการคำขอของลูกค้า เช่น ค้นหา เพิ่ม แก้ไข และลบข้อมูลลูกค้า
@@ -24,10 +26,18 @@ public class CustomerController {
 
     /**
      * ดึงรายชื่อลูกค้าทั้งหมด
+     * ตอบ 304 โดยไม่อ่านฐานข้อมูลเมื่อ If-None-Match ตรงกับเวอร์ชันข้อมูลลูกค้าปัจจุบัน
      */
     @GetMapping
-    public List<Customer> all() {
-        return service.all();
+    public ResponseEntity<List<Customer>> all(WebRequest request) {
+        String etag = VersionETag.of("customers", service.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(VersionETag.REVALIDATE)
+                .eTag(etag)
+                .body(service.all());
     }
 
     /**
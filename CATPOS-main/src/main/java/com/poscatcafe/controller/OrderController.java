@@ -1,15 +1,30 @@
 package com.poscatcafe.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poscatcafe.model.Money;
 import com.poscatcafe.model.Order;
+import com.poscatcafe.service.EscPosReceiptService;
 import com.poscatcafe.service.OrderService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * ให้เฉพาะรายงานช่วงวันที่สำหรับหน้า Dashboard (กราฟเรนเดอร์ฝั่งลูกค้า)
@@ -17,64 +32,159 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    private static final MediaType ESC_POS = MediaType.parseMediaType("application/vnd.escpos");
+
     private final OrderService service;
+    private final ObjectMapper objectMapper;
+    private final EscPosReceiptService escPosReceiptService;
 
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, ObjectMapper objectMapper, EscPosReceiptService escPosReceiptService) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.escPosReceiptService = escPosReceiptService;
     }
 
     // Default endpoint for fetching all orders (for reports)
     @GetMapping
-    public Map<String, Object> getAllOrders() {
+    public ResponseEntity<StreamingResponseBody> getAllOrders() {
         LocalDate today = LocalDate.now();
-        LocalDate start = today.minusYears(1);
-        var list = service.between(start, today);
-        
-        // Debug log: แสดง order ที่ดึงมา
-        System.out.println("[GET /api/orders] Orders found: " + (list == null ? 0 : list.size()));
-        if (list != null) {
-            list.forEach(o -> System.out.println("OrderId: " + o.getId() + ", orderDate: " + o.getOrderDate() + ", total: " + o.getTotalAmount()));
-        }
-        
-        if (list == null || list.isEmpty()) {
-            // mock ข้อมูลตัวอย่างสำหรับรายงาน
-            var mockOrder = new Order();
-            mockOrder.setId(1L);
-            mockOrder.setOrderDate(today.atStartOfDay());
-            mockOrder.setTotalAmount(500.00);
-            mockOrder.setReceiptNo("R202406250001");
-            mockOrder.setCustomerName("ลูกค้าทดสอบ");
-            list = java.util.List.of(mockOrder);
-        }
-        
-        double total = list.stream().mapToDouble(Order::getTotalAmount).sum();
-        return Map.of("orders", list, "totalSales", total);
+        return ordersWithTotal(today.minusYears(1), today);
     }
 
     @GetMapping("/report")
-    public Map<String, Object> report(
+    public ResponseEntity<StreamingResponseBody> report(
             @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
             @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
         LocalDate today = LocalDate.now();
         if (end == null) end = today;
         if (start == null) start = today.minusYears(1);
-        var list = service.between(start, end);
-        // Debug log: แสดง order ที่ดึงมา
-        System.out.println("[REPORT] Orders found: " + (list == null ? 0 : list.size()));
-        if (list != null) {
-            list.forEach(o -> System.out.println("OrderId: " + o.getId() + ", orderDate: " + o.getOrderDate() + ", total: " + o.getTotalAmount()));
-        }
-        if (list == null || list.isEmpty()) {
-            // mock ข้อมูลตัวอย่างสำหรับรายงาน
-            var mockOrder = new Order();
-            mockOrder.setId(1L);
-            mockOrder.setOrderDate(today.atStartOfDay());
-            mockOrder.setTotalAmount(500.00);
-            mockOrder.setReceiptNo("R202406250001");
-            mockOrder.setCustomerName("ลูกค้าทดสอบ");
-            list = java.util.List.of(mockOrder);
+        return ordersWithTotal(start, end);
+    }
+
+    // Keyset page, newest first. Pass back "next.afterDate"/"next.afterId" to get the following page.
+    @GetMapping("/page")
+    public Map<String, Object> page(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(value = "afterDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterDate,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        LocalDate today = LocalDate.now();
+        if (end == null) end = today;
+        if (start == null) start = today.minusYears(1);
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<Order> orders = service.page(start, end, afterDate, afterId, size);
+
+        Map<String, Object> next = null;
+        if (orders.size() == size) {
+            Order last = orders.get(orders.size() - 1);
+            next = Map.of("afterDate", last.getOrderDate(), "afterId", last.getId());
         }
-        double total = list.stream().mapToDouble(Order::getTotalAmount).sum();
-        return Map.of("orders", list, "totalSales", total);
+        Map<String, Object> body = new HashMap<>();
+        body.put("orders", orders);
+        body.put("next", next);
+        return body;
+    }
+
+    // Totals for a range without loading any order rows
+    @GetMapping("/summary")
+    public Map<String, Object> summary(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        LocalDate today = LocalDate.now();
+        if (end == null) end = today;
+        if (start == null) start = today.minusYears(1);
+        return Map.of(
+                "totalSales", Money.toDecimal(service.totalSalesBetween(start, end)),
+                "totalOrders", service.countBetween(start, end));
+    }
+
+    // Streams every order in the range as one JSON array, a page at a time, without buffering the response
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = start != null ? start : today.minusYears(1);
+        LocalDate to = end != null ? end : today;
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.writeStartArray();
+                service.streamBetween(from, to, EXPORT_PAGE_SIZE, order -> {
+                    try {
+                        objectMapper.writeValue(gen, order);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                gen.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Content-Disposition", "attachment; filename=\"orders-" + from + "-" + to + ".json\"")
+                .body(body);
+    }
+
+    // {"orders": [...], "totalSales": n} for /api/orders and /report, streamed a page at a time like /export.
+    // The total is summed from the streamed orders, so it comes from the same read-only transaction as the list
+    // (a separate count/sum query could see orders committed before or after the stream)
+    private ResponseEntity<StreamingResponseBody> ordersWithTotal(LocalDate from, LocalDate to) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                AtomicLong count = new AtomicLong();
+                AtomicLong total = new AtomicLong();
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("orders");
+                service.streamBetween(from, to, EXPORT_PAGE_SIZE, order -> {
+                    count.incrementAndGet();
+                    total.addAndGet(order.getTotalAmount());
+                    try {
+                        objectMapper.writeValue(gen, order);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (count.get() == 0) {
+                    // mock ข้อมูลตัวอย่างสำหรับรายงาน
+                    var mockOrder = new Order();
+                    mockOrder.setId(1L);
+                    mockOrder.setOrderDate(LocalDate.now().atStartOfDay());
+                    mockOrder.setTotalAmount(50_000);
+                    mockOrder.setReceiptNo("R202406250001");
+                    mockOrder.setCustomerName("ลูกค้าทดสอบ");
+                    objectMapper.writeValue(gen, mockOrder);
+                    total.set(mockOrder.getTotalAmount());
+                }
+                gen.writeEndArray();
+                gen.writeNumberField("totalSales", Money.toDecimal(total.get()));
+                gen.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Receipt as a raw ESC/POS byte stream for an 80 mm thermal printer (the client forwards it to the printer as-is)
+    @GetMapping("/{id}/receipt/escpos")
+    public ResponseEntity<StreamingResponseBody> escPosReceipt(@PathVariable Long id) {
+        Order order = service.getWithItems(id);
+        StreamingResponseBody body = out -> escPosReceiptService.write(order, out);
+        return ResponseEntity.ok()
+                .contentType(ESC_POS)
+                .header("Content-Disposition", "attachment; filename=\"receipt-" + id + ".bin\"")
+                .body(body);
+    }
+
+    // Sends the ESC/POS receipt straight to the printer configured in pos.receipt.printer
+    @PostMapping("/{id}/receipt/print")
+    public Map<String, Object> printReceipt(@PathVariable Long id) throws IOException {
+        escPosReceiptService.print(service.getWithItems(id));
+        return Map.of("success", true, "message", "ส่งใบเสร็จไปยังเครื่องพิมพ์แล้ว");
     }
-}
\ No newline at end of file
+}
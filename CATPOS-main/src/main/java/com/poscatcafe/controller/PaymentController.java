@@ -1,5 +1,6 @@
 package com.poscatcafe.controller;
 
+import com.poscatcafe.dto.AuthPrincipal;
 import com.poscatcafe.dto.PaymentRequestDTO;
 import com.poscatcafe.dto.PaymentResponseDTO;
 import com.poscatcafe.service.PaymentService;
@@ -22,10 +23,10 @@ public class PaymentController {
     }
 
     /**
-     * รับคำร้องขอชำระเงินและส่งให้บริการประมวลผล
+     * รับคำร้องขอชำระเงินและส่งให้บริการประมวลผล ตะกร้าฝั่งเซิร์ฟเวอร์ที่อ้างถึงต้องเป็นของผู้ใช้ที่เข้าสู่ระบบ
      */
     @PostMapping("/process")
-    public PaymentResponseDTO processPayment(@RequestBody PaymentRequestDTO request) {
-        return paymentService.processPayment(request);
+    public PaymentResponseDTO processPayment(@RequestBody PaymentRequestDTO request, AuthPrincipal principal) {
+        return paymentService.processPayment(request, principal != null ? principal.employeeId() : null);
     }
 }
@@ -1,11 +1,17 @@
 package com.poscatcafe.controller;
 
 import com.poscatcafe.model.Product;
+import com.poscatcafe.service.ProductCatalog;
 import com.poscatcafe.service.ProductService;
+import com.poscatcafe.service.ProductStreamService;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * จัดการข้อมูลสินค้า เช่น รายการสินค้า เพิ่ม แก้ไข และลบ
@@ -14,28 +20,73 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/products")
 public class ProductController {
     private final ProductService service;
+    private final ProductStreamService streamService;
 
     /**
-     * สร้างคอนโทรลเลอร์เพื่อเชื่อมกับบริการจัดการสินค้า
+     * สร้างคอนโทรลเลอร์เพื่อเชื่อมกับบริการจัดการสินค้าและบริการส่งการเปลี่ยนแปลงสินค้า
      */
-    public ProductController(ProductService service) {
+    public ProductController(ProductService service, ProductStreamService streamService) {
         this.service = service;
+        this.streamService = streamService;
     }
 
     /**
-     * ดึงรายการสินค้าทั้งหมดจากระบบ
+     * ดึงรายการสินค้าทั้งหมดจากระบบ หรือเฉพาะหมวดหมู่ที่ระบุ
+     * ตอบ 304 เมื่อ If-None-Match ตรงกับเวอร์ชันรายการปัจจุบัน ซึ่งไม่เปลี่ยนเมื่อขายของ
+     * สต็อกในรายการที่เบราว์เซอร์เก็บไว้จึงอาจเก่า หน้าเว็บใช้สต็อกจาก /stock และ /stream แทน
      */
     @GetMapping
-    public List<Product> all() {
-        return service.all();
+    public ResponseEntity<List<Product>> all(@RequestParam(required = false) String category, WebRequest request) {
+        ProductCatalog catalog = service.catalog();
+        String etag = VersionETag.of("products", catalog.listVersion());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(VersionETag.REVALIDATE)
+                .eTag(etag)
+                .body(category != null ? catalog.byCategory(category) : catalog.products());
     }
 
     /**
-     * ดึงข้อมูลสินค้าตามรหัสที่ระบุ
+     * ดึงราคาและสต็อกปัจจุบันของสินค้าทุกรายการ (ข้อมูลเล็กกว่ารายการสินค้าเต็มมาก)
+     * ตอบ 304 เมื่อ If-None-Match ตรงกับเวอร์ชันของ snapshot สินค้าปัจจุบัน
+     */
+    @GetMapping("/stock")
+    public ResponseEntity<List<ProductStreamService.StockDelta>> stock(WebRequest request) {
+        ProductCatalog catalog = service.catalog();
+        String etag = VersionETag.of("product-stock", catalog.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(VersionETag.REVALIDATE)
+                .eTag(etag)
+                .body(catalog.products().stream().map(ProductStreamService.StockDelta::of).toList());
+    }
+
+    /**
+     * เปิดช่อง Server-Sent Events สำหรับรับการเปลี่ยนแปลงราคา สต็อก และสินค้าที่เพิ่ม/ลบ
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return streamService.subscribe();
+    }
+
+    /**
+     * ดึงข้อมูลสินค้าตามรหัสที่ระบุ ตอบ 404 เมื่อไม่พบสินค้า
      */
     @GetMapping("/{id}")
-    public Product get(@PathVariable Long id) {
-        return service.get(id);
+    public ResponseEntity<Product> get(@PathVariable Long id) {
+        return orNotFound(service.get(id));
+    }
+
+    /**
+     * ดึงข้อมูลสินค้าตามรหัสสินค้าที่สแกนหรือพิมพ์ ตอบ 404 เมื่อไม่พบสินค้า
+     */
+    @GetMapping("/code/{code}")
+    public ResponseEntity<Product> getByCode(@PathVariable String code) {
+        return orNotFound(service.getByCode(code));
     }
 
     /**
@@ -62,4 +113,8 @@ public class ProductController {
     public void delete(@PathVariable Long id) {
         service.delete(id);
     }
+
+    private static ResponseEntity<Product> orNotFound(Product product) {
+        return product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
+    }
 }
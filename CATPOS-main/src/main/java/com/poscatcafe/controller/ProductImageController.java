@@ -0,0 +1,62 @@
+package com.poscatcafe.controller;
+
+import com.poscatcafe.model.ProductImages;
+import com.poscatcafe.service.FileStorageService;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * เสิร์ฟรูปภาพสินค้าและรูปย่อ ชื่อไฟล์มาจากแฮชของเนื้อไฟล์และไฟล์ไม่ถูกเขียนทับ จึงให้เบราว์เซอร์ cache ได้ 1 ปี
+ * โดยไม่ต้องตรวจซ้ำ (immutable) พร้อม ETag แบบ strong สำหรับ If-None-Match และรองรับคำขอแบบ Range
+ */
+@RestController
+public class ProductImageController {
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final FileStorageService storageService;
+
+    /**
+     * สร้างคอนโทรลเลอร์พร้อมบริการจัดเก็บไฟล์
+     */
+    public ProductImageController(FileStorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    /**
+     * คืนไฟล์รูปสินค้า Spring จะตอบ 304 เมื่อ ETag หรือ Last-Modified ตรงกับของไคลเอนต์ และตอบ 206 เมื่อขอ Range
+     */
+    @GetMapping(ProductImages.URL_PREFIX + "{filename:.+}")
+    public ResponseEntity<Resource> image(@PathVariable String filename) {
+        return storageService.findProductImage(filename)
+                .map(path -> {
+                    Resource resource = new FileSystemResource(path);
+                    return ResponseEntity.ok()
+                            .cacheControl(IMMUTABLE)
+                            .eTag(etag(path))
+                            .lastModified(path.toFile().lastModified())
+                            .contentType(MediaTypeFactory.getMediaType(resource)
+                                    .orElse(MediaType.APPLICATION_OCTET_STREAM))
+                            .body(resource);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * ETag คือชื่อไฟล์ที่ไม่มีนามสกุล (แฮชของรูปต้นฉบับ หรือแฮชตามด้วยขนาดสำหรับรูปย่อ)
+     */
+    private static String etag(Path path) {
+        String name = path.getFileName().toString();
+        return "\"" + name.substring(0, name.lastIndexOf('.')) + "\"";
+    }
+}
@@ -0,0 +1,47 @@
+package com.poscatcafe.controller;
+
+import com.poscatcafe.service.ReceiptArchiveService;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ให้บริการพิมพ์ใบเสร็จซ้ำจากคลังใบเสร็จ
+ */
+@RestController
+@RequestMapping("/api/receipts")
+public class ReceiptController {
+    private static final MediaType HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
+    private final ReceiptArchiveService receiptArchiveService;
+
+    /**
+     * สร้างคอนโทรลเลอร์พร้อมบริการคลังใบเสร็จ
+     */
+    public ReceiptController(ReceiptArchiveService receiptArchiveService) {
+        this.receiptArchiveService = receiptArchiveService;
+    }
+
+    /**
+     * คืนใบเสร็จ HTML ตามเลขที่ใบเสร็จ ส่งข้อมูลที่บีบอัดไว้ไปตรง ๆ เมื่อไคลเอนต์รับ gzip ได้
+     */
+    @GetMapping("/{receiptNo}")
+    public ResponseEntity<byte[]> reprint(
+            @PathVariable String receiptNo,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return receiptArchiveService.findCompressed(receiptNo)
+                .map(compressed -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .contentType(HTML_UTF8)
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                    if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(compressed);
+                    }
+                    return response.body(ReceiptArchiveService.gunzip(compressed));
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
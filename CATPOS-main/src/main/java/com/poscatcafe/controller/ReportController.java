@@ -1,13 +1,19 @@
 package com.poscatcafe.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.poscatcafe.dto.AuthPrincipal;
 import com.poscatcafe.service.ReportService;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 @RestController
@@ -18,8 +24,30 @@ public class ReportController {
     private ReportService reportService;
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getReportsData() {
-        Map<String, Object> reportsData = reportService.getReportsData();
+    public ResponseEntity<Map<String, Object>> getReportsData(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        Map<String, Object> reportsData;
+        if (start == null && end == null) {
+            reportsData = reportService.getReportsData();
+        } else {
+            LocalDate today = LocalDate.now();
+            reportsData = reportService.getReportsData(
+                    start != null ? start : today.minusYears(1), end != null ? end : today);
+        }
         return ResponseEntity.ok(reportsData);
     }
+
+    /**
+     * ลบและสร้างตารางสรุปยอดขายใหม่ทั้งหมดจากออเดอร์ (เฉพาะผู้ดูแลระบบ)
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(AuthPrincipal principal) {
+        if (principal == null || !principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("success", false, "message", "เฉพาะผู้ดูแลระบบเท่านั้น"));
+        }
+        reportService.rebuildRollups();
+        return ResponseEntity.ok(Map.of("success", true));
+    }
 }
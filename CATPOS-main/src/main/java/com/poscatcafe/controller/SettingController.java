@@ -3,7 +3,9 @@ package com.poscatcafe.controller;
 import com.poscatcafe.model.StoreSetting;
 import com.poscatcafe.service.StoreSettingService;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * จัดการการตั้งค่าร้าน เช่น ข้อมูลทั่วไปของร้านและโลโก้
@@ -22,10 +24,18 @@ public class SettingController {
 
     /**
      * ดึงข้อมูลการตั้งค่าร้านทั้งหมด
+     * ตอบ 304 เมื่อ If-None-Match ตรงกับเวอร์ชันการตั้งค่าปัจจุบัน
      */
     @GetMapping
-    public StoreSetting get() {
-        return service.get();
+    public ResponseEntity<StoreSetting> get(WebRequest request) {
+        String etag = VersionETag.of("settings", service.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(VersionETag.REVALIDATE)
+                .eTag(etag)
+                .body(service.get());
     }
 
     /**
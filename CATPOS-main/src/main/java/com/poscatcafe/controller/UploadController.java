@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.poscatcafe.model.ProductImages;
 import com.poscatcafe.service.FileStorageService;
 
 import java.util.Map;
@@ -25,12 +26,19 @@ public class UploadController {
     }
 
     /**
-     * อัปโหลดรูปภาพสินค้าจากคำขอแล้วคืนค่า URL ที่สามารถเข้าถึงได้
+     * อัปโหลดรูปภาพสินค้าจากคำขอแล้วคืนค่า URL ที่สามารถเข้าถึงได้ (รูปย่อจะพร้อมใช้งานหลังจากนั้นเล็กน้อย)
+     * ตอบ 400 เมื่อไฟล์ว่างหรือไม่ใช่รูปภาพที่รองรับ
      */
     @PostMapping("/products")
     public ResponseEntity<Map<String, Object>> uploadProductImage(
             @RequestParam("file") MultipartFile file) {
-        String url = storageService.storeProductImage(file);
-        return ResponseEntity.ok(Map.of("url", url));
+        try {
+            String url = storageService.storeProductImage(file);
+            return ResponseEntity.ok(Map.of(
+                    "url", url,
+                    "thumbnailUrl", ProductImages.thumbnailUrl(url, ProductImages.GRID)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
     }
 }
@@ -0,0 +1,26 @@
+package com.poscatcafe.controller;
+
+import org.springframework.http.CacheControl;
+
+/**
+ * สร้าง ETag แบบ strong จากเวอร์ชันของข้อมูลในหน่วยความจำ เพื่อตอบ 304 ได้โดยไม่อ่านฐานข้อมูลหรือแปลงเป็น JSON
+ */
+final class VersionETag {
+    /**
+     * ให้เบราว์เซอร์เก็บคำตอบไว้ได้แต่ต้องตรวจกับเซิร์ฟเวอร์ (If-None-Match) ทุกครั้งก่อนใช้
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    // ตัวนับเวอร์ชันเริ่มใหม่ทุกครั้งที่เริ่มระบบ จึงใส่เวลาเริ่มระบบไว้ใน ETag ด้วยเพื่อไม่ให้ชนกับของรอบก่อน
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private VersionETag() {
+    }
+
+    /**
+     * คืน ETag ของข้อมูลชนิดที่ระบุ ณ เวอร์ชันที่ระบุ
+     */
+    static String of(String kind, long version) {
+        return "\"" + kind + "-" + EPOCH + "-" + version + "\"";
+    }
+}
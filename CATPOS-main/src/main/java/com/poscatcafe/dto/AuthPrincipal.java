@@ -0,0 +1,19 @@
+package com.poscatcafe.dto;
+
+/**
+ * ผู้ใช้ที่ผ่านการยืนยันตัวตนของคำขอปัจจุบัน ตัวกรอง AuthFilter แนบไว้กับทุกคำขอ /api/**
+ * คอนโทรลเลอร์รับได้โดยประกาศพารามิเตอร์ชนิด AuthPrincipal
+ */
+public record AuthPrincipal(Long employeeId, String username, String name, String role) {
+    /**
+     * ชื่อ attribute ของคำขอที่เก็บผู้ใช้ปัจจุบัน
+     */
+    public static final String ATTRIBUTE = AuthPrincipal.class.getName();
+
+    /**
+     * คืน true หากผู้ใช้เป็นผู้ดูแลระบบ (บทบาท ADMIN)
+     */
+    public boolean isAdmin() {
+        return "ADMIN".equalsIgnoreCase(role);
+    }
+}
@@ -1,5 +1,8 @@
 package com.poscatcafe.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.poscatcafe.model.Money;
+
 import java.util.List;
 
 /**
@@ -7,10 +10,13 @@ import java.util.List;
  */
 public class CartCalculationDTO {
     private List<CartItemDTO> items;
-    private Double subtotal;
-    private Double discount;
+    @JsonSerialize(using = Money.Serializer.class)
+    private long subtotal;
+    @JsonSerialize(using = Money.Serializer.class)
+    private long discount;
     private String discountDescription;
-    private Double total;
+    @JsonSerialize(using = Money.Serializer.class)
+    private long total;
     private Integer loyaltyPointsEarned;
     private Boolean stockAvailable;
     private String errorMessage;
@@ -35,30 +41,30 @@ public class CartCalculationDTO {
     }
 
     /**
-     * คืนยอดรวมก่อนหักส่วนลด
+     * คืนยอดรวมก่อนหักส่วนลด (สตางค์)
      */
-    public Double getSubtotal() {
+    public long getSubtotal() {
         return subtotal;
     }
 
     /**
-     * กำหนดยอดรวมก่อนหักส่วนลด
+     * กำหนดยอดรวมก่อนหักส่วนลด (สตางค์)
      */
-    public void setSubtotal(Double subtotal) {
+    public void setSubtotal(long subtotal) {
         this.subtotal = subtotal;
     }
 
     /**
-     * คืนจำนวนเงินส่วนลดที่ได้รับ
+     * คืนจำนวนเงินส่วนลดที่ได้รับ (สตางค์)
      */
-    public Double getDiscount() {
+    public long getDiscount() {
         return discount;
     }
 
     /**
-     * กำหนดจำนวนเงินส่วนลดที่ได้รับ
+     * กำหนดจำนวนเงินส่วนลดที่ได้รับ (สตางค์)
      */
-    public void setDiscount(Double discount) {
+    public void setDiscount(long discount) {
         this.discount = discount;
     }
 
@@ -77,16 +83,16 @@ public class CartCalculationDTO {
     }
 
     /**
-     * คืนยอดสุทธิหลังหักส่วนลด
+     * คืนยอดสุทธิหลังหักส่วนลด (สตางค์)
      */
-    public Double getTotal() {
+    public long getTotal() {
         return total;
     }
 
     /**
-     * กำหนดยอดสุทธิหลังหักส่วนลด
+     * กำหนดยอดสุทธิหลังหักส่วนลด (สตางค์)
      */
-    public void setTotal(Double total) {
+    public void setTotal(long total) {
         this.total = total;
     }
 
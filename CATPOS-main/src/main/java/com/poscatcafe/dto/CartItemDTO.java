@@ -1,5 +1,9 @@
 package com.poscatcafe.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.poscatcafe.model.Money;
+
 /**
  * ตัวแทนสินค้าแต่ละรายการในตะกร้า พร้อมข้อมูลที่จำเป็นสำหรับคำนวณราคา
  */
@@ -7,9 +11,13 @@ public class CartItemDTO {
     private Long productId;
     private String productName;
     private String imageUrl;
-    private Double price;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long price;
     private Integer quantity;
-    private Double subtotal;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long subtotal;
 
     /**
      * สร้างรายการสินค้าในตะกร้าแบบเปล่า
@@ -19,13 +27,13 @@ public class CartItemDTO {
     /**
      * สร้างรายการสินค้าในตะกร้าพร้อมข้อมูลเริ่มต้น
      */
-    public CartItemDTO(Long productId, String productName, String imageUrl, Double price, Integer quantity) {
+    public CartItemDTO(Long productId, String productName, String imageUrl, long price, Integer quantity) {
         this.productId = productId;
         this.productName = productName;
         this.imageUrl = imageUrl;
         this.price = price;
         this.quantity = quantity;
-        this.subtotal = price * quantity;
+        this.updateSubtotal();
     }
 
     /**
@@ -71,16 +79,16 @@ public class CartItemDTO {
     }
 
     /**
-     * คืนราคาต่อหน่วยของสินค้า
+     * คืนราคาต่อหน่วยของสินค้า (สตางค์)
      */
-    public Double getPrice() {
+    public long getPrice() {
         return price;
     }
 
     /**
-     * กำหนดราคาต่อหน่วยและปรับยอดรวมย่อยใหม่
+     * กำหนดราคาต่อหน่วย (สตางค์) และปรับยอดรวมย่อยใหม่
      */
-    public void setPrice(Double price) {
+    public void setPrice(long price) {
         this.price = price;
         this.updateSubtotal();
     }
@@ -101,16 +109,16 @@ public class CartItemDTO {
     }
 
     /**
-     * คืนยอดรวมย่อยของสินค้า
+     * คืนยอดรวมย่อยของสินค้า (สตางค์)
      */
-    public Double getSubtotal() {
+    public long getSubtotal() {
         return subtotal;
     }
 
     /**
-     * กำหนดยอดรวมย่อยของสินค้าโดยตรง
+     * กำหนดยอดรวมย่อยของสินค้าโดยตรง (สตางค์)
      */
-    public void setSubtotal(Double subtotal) {
+    public void setSubtotal(long subtotal) {
         this.subtotal = subtotal;
     }
 
@@ -118,8 +126,8 @@ public class CartItemDTO {
      * คำนวณยอดรวมย่อยจากราคาและจำนวนล่าสุด
      */
     private void updateSubtotal() {
-        if (price != null && quantity != null) {
-            this.subtotal = price * quantity;
+        if (quantity != null) {
+            this.subtotal = Money.times(price, quantity);
         }
     }
 }
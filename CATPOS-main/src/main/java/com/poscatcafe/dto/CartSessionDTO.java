@@ -0,0 +1,43 @@
+package com.poscatcafe.dto;
+
+/**
+ * ผลของตะกร้าที่เก็บไว้ฝั่งเซิร์ฟเวอร์ ยอดรวม ส่วนลด และแต้มเหมือนการคำนวณตะกร้าปกติ พร้อมรหัสตะกร้า
+ * เมื่อแก้ไขรายการ จะส่งกลับเฉพาะรายการที่เปลี่ยน (line) ส่วนรายการทั้งหมด (items) ส่งเมื่อสร้างหรือดึงตะกร้า
+ */
+public class CartSessionDTO extends CartCalculationDTO {
+    private String cartId;
+    private CartItemDTO line;
+
+    /**
+     * สร้างผลของตะกร้าแบบเปล่า
+     */
+    public CartSessionDTO() {}
+
+    /**
+     * คืนรหัสตะกร้า
+     */
+    public String getCartId() {
+        return cartId;
+    }
+
+    /**
+     * กำหนดรหัสตะกร้า
+     */
+    public void setCartId(String cartId) {
+        this.cartId = cartId;
+    }
+
+    /**
+     * คืนรายการที่เพิ่งแก้ไขตามที่ตะกร้าเก็บไว้ (null เมื่อรายการถูกลบหรือไม่มีในตะกร้า)
+     */
+    public CartItemDTO getLine() {
+        return line;
+    }
+
+    /**
+     * กำหนดรายการที่เพิ่งแก้ไข
+     */
+    public void setLine(CartItemDTO line) {
+        this.line = line;
+    }
+}
@@ -1,22 +1,41 @@
 package com.poscatcafe.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.poscatcafe.model.Money;
+
 import java.util.List;
 
 /**
  * เก็บข้อมูลคำขอชำระเงินจากหน้าขาย เช่น รายการสินค้าและวิธีการชำระ
  */
 public class PaymentRequestDTO {
+    private String cartId;
     private List<CartItemDTO> items;
     private Long customerId;
     private Boolean useCoupon;
     private String paymentMethod; // "cash" or "qr"
-    private Double cashReceived; // for cash payments
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private Long cashReceived; // for cash payments (satang)
 
     /**
      * สร้างวัตถุคำขอชำระเงินแบบเปล่า
      */
     public PaymentRequestDTO() {}
 
+    /**
+     * คืนรหัสตะกร้าฝั่งเซิร์ฟเวอร์ (ถ้ามี รายการสินค้าจะมาจากตะกร้านี้แทน items)
+     */
+    public String getCartId() {
+        return cartId;
+    }
+
+    /**
+     * กำหนดรหัสตะกร้าฝั่งเซิร์ฟเวอร์
+     */
+    public void setCartId(String cartId) {
+        this.cartId = cartId;
+    }
+
     /**
      * คืนรายการสินค้าในคำสั่งซื้อ
      */
@@ -74,16 +93,16 @@ public class PaymentRequestDTO {
     }
 
     /**
-     * คืนจำนวนเงินสดที่ได้รับจากลูกค้า (สำหรับจ่ายเงินสด)
+     * คืนจำนวนเงินสดที่ได้รับจากลูกค้า (สตางค์ สำหรับจ่ายเงินสด)
      */
-    public Double getCashReceived() {
+    public Long getCashReceived() {
         return cashReceived;
     }
 
     /**
-     * กำหนดจำนวนเงินสดที่ได้รับจากลูกค้า (สำหรับจ่ายเงินสด)
+     * กำหนดจำนวนเงินสดที่ได้รับจากลูกค้า (สตางค์ สำหรับจ่ายเงินสด)
      */
-    public void setCashReceived(Double cashReceived) {
+    public void setCashReceived(Long cashReceived) {
         this.cashReceived = cashReceived;
     }
 }
@@ -1,5 +1,8 @@
 package com.poscatcafe.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.poscatcafe.model.Money;
+
 /**
  * ใช้ตอบกลับผลการประมวลผลการชำระเงิน
  */
@@ -9,7 +12,8 @@ public class PaymentResponseDTO {
     private Long orderId;
     private String receiptHtml;
     private String qrCodeImage; // Base64 encoded QR code image
-    private Double changeAmount; // for cash payments
+    @JsonSerialize(using = Money.Serializer.class)
+    private Long changeAmount; // for cash payments (satang)
     private String errorMessage;
 
     /**
@@ -96,16 +100,16 @@ public class PaymentResponseDTO {
     }
 
     /**
-     * คืนเงินทอนสำหรับการชำระเงินสด
+     * คืนเงินทอนสำหรับการชำระเงินสด (สตางค์)
      */
-    public Double getChangeAmount() {
+    public Long getChangeAmount() {
         return changeAmount;
     }
 
     /**
-     * กำหนดเงินทอนสำหรับการชำระเงินสด
+     * กำหนดเงินทอนสำหรับการชำระเงินสด (สตางค์)
      */
-    public void setChangeAmount(Double changeAmount) {
+    public void setChangeAmount(Long changeAmount) {
         this.changeAmount = changeAmount;
     }
 
@@ -0,0 +1,71 @@
+package com.poscatcafe.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * เซสชันที่เข้าสู่ระบบแล้ว ใช้เมื่อเก็บเซสชันในฐานข้อมูล (pos.session.store=jdbc)
+ * เก็บเฉพาะค่า SHA-256 ของโทเคน ไม่เก็บโทเคนจริง
+ */
+@Entity
+@Table(name = "auth_session", indexes = @Index(name = "idx_auth_session_last_accessed", columnList = "last_accessed"))
+public class AuthSession {
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private Long employeeId;
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_accessed", nullable = false)
+    private LocalDateTime lastAccessed;
+
+    /**
+     * สร้างเซสชันแบบเปล่า (ใช้โดย JPA)
+     */
+    public AuthSession() {}
+
+    /**
+     * สร้างเซสชันใหม่ของพนักงาน ณ เวลาที่ระบุ
+     */
+    public AuthSession(String tokenHash, Long employeeId, LocalDateTime now) {
+        this.tokenHash = tokenHash;
+        this.employeeId = employeeId;
+        this.createdAt = now;
+        this.lastAccessed = now;
+    }
+
+    /**
+     * คืนค่า SHA-256 ของโทเคน
+     */
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    /**
+     * คืนรหัสพนักงานเจ้าของเซสชัน
+     */
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    /**
+     * คืนเวลาที่สร้างเซสชัน
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * คืนเวลาที่ใช้งานล่าสุด
+     */
+    public LocalDateTime getLastAccessed() {
+        return lastAccessed;
+    }
+}
@@ -8,6 +8,7 @@ import jakarta.persistence.Id;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * เก็บข้อมูลลูกค้าของร้านพร้อมแต้มสะสม
@@ -32,7 +33,10 @@ public class Customer {
     @Column(length = 1000)
     private String address;
 
-    @Column(columnDefinition = "integer default 0")
+    // แต้มเปลี่ยนได้ผ่าน LoyaltyService (UPDATE แบบอะตอมมิก + สมุดบัญชีแต้ม) เท่านั้น การบันทึก entity จะไม่เขียนทับ
+    // ใช้ @ColumnDefault แทน columnDefinition เพราะ Hibernate นำ columnDefinition ไปใช้ cast พารามิเตอร์ในคำสั่ง UPDATE
+    @ColumnDefault("0")
+    @Column(updatable = false)
     private Integer loyaltyPoints = 0;
 
     /**
@@ -0,0 +1,84 @@
+package com.poscatcafe.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDate;
+
+/**
+ * ยอดขายสะสมรายวัน ปรับปรุงทุกครั้งที่บันทึกออเดอร์เพื่อให้รายงานไม่ต้องสแกนตาราง orders ทั้งหมด
+ */
+@Entity
+@Table(name = "daily_sales_summary")
+public class DailySalesSummary {
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Column(precision = 14, scale = 2)
+    @Convert(converter = Money.Converter.class)
+    @JsonSerialize(using = Money.Serializer.class)
+    private long totalSales;
+
+    private long orderCount;
+
+    /**
+     * สร้างยอดสรุปรายวันแบบเปล่า (ใช้โดย JPA)
+     */
+    public DailySalesSummary() {}
+
+    /**
+     * สร้างยอดสรุปรายวันพร้อมค่าเริ่มต้น
+     */
+    public DailySalesSummary(LocalDate salesDate, long totalSales, long orderCount) {
+        this.salesDate = salesDate;
+        this.totalSales = totalSales;
+        this.orderCount = orderCount;
+    }
+
+    /**
+     * คืนวันที่ของยอดสรุป
+     */
+    public LocalDate getSalesDate() {
+        return salesDate;
+    }
+
+    /**
+     * กำหนดวันที่ของยอดสรุป
+     */
+    public void setSalesDate(LocalDate salesDate) {
+        this.salesDate = salesDate;
+    }
+
+    /**
+     * คืนยอดขายรวมของวัน (สตางค์)
+     */
+    public long getTotalSales() {
+        return totalSales;
+    }
+
+    /**
+     * กำหนดยอดขายรวมของวัน (สตางค์)
+     */
+    public void setTotalSales(long totalSales) {
+        this.totalSales = totalSales;
+    }
+
+    /**
+     * คืนจำนวนออเดอร์ของวัน
+     */
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * กำหนดจำนวนออเดอร์ของวัน
+     */
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+}
@@ -0,0 +1,91 @@
+package com.poscatcafe.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * เหตุการณ์รอสะสมแต้ม (outbox) บันทึกใน transaction เดียวกับออเดอร์ แล้วเธรดพื้นหลังจะนำไปเพิ่มแต้มภายหลัง
+ * order_id ไม่ซ้ำกัน ออเดอร์หนึ่งจึงมีเหตุการณ์สะสมแต้มได้เพียงรายการเดียว
+ */
+@Entity
+@Table(name = "loyalty_accrual_outbox", indexes = @Index(name = "idx_loyalty_accrual_pending", columnList = "processed_at, id"))
+public class LoyaltyAccrualEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, unique = true)
+    private Long orderId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    private int points;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    /**
+     * สร้างเหตุการณ์แบบเปล่า (ใช้โดย JPA)
+     */
+    public LoyaltyAccrualEvent() {}
+
+    /**
+     * สร้างเหตุการณ์สะสมแต้มของออเดอร์
+     */
+    public LoyaltyAccrualEvent(Long orderId, Long customerId, int points) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.points = points;
+    }
+
+    /**
+     * คืนรหัสเหตุการณ์
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * คืนรหัสออเดอร์ที่ได้แต้ม
+     */
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * คืนรหัสลูกค้าที่ได้แต้ม
+     */
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * คืนจำนวนแต้มที่ได้รับ (คำนวณไว้ตอนชำระเงิน)
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * คืนเวลาที่สร้างเหตุการณ์
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * คืนเวลาที่นำไปเพิ่มแต้มแล้ว (null ถ้ายังรออยู่)
+     */
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+}
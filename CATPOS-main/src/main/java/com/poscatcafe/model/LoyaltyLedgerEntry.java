@@ -0,0 +1,101 @@
+package com.poscatcafe.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+/**
+ * รายการเคลื่อนไหวแต้มสะสมแบบเพิ่มอย่างเดียว ทุกการได้รับหรือใช้แต้มจะถูกบันทึกไว้หนึ่งแถว
+ * ยอดคงเหลือใน Customer.loyaltyPoints ต้องเท่ากับผลรวม points ของลูกค้าคนนั้นเสมอ
+ */
+@Entity
+@Table(
+        name = "loyalty_ledger",
+        indexes = @Index(name = "idx_loyalty_ledger_customer", columnList = "customer_id, id"),
+        // ออเดอร์หนึ่งได้รับ/ใช้แต้มแต่ละประเภทได้ครั้งเดียว กันการเพิ่มแต้มซ้ำเมื่อประมวลผลเหตุการณ์ซ้ำ
+        uniqueConstraints = @UniqueConstraint(name = "uk_loyalty_ledger_order_reason", columnNames = {"order_id", "reason"}))
+public class LoyaltyLedgerEntry {
+    public static final String EARN = "EARN";
+    public static final String REDEEM = "REDEEM";
+    public static final String ADJUST = "ADJUST";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    private int points;
+
+    @Column(length = 20, nullable = false)
+    private String reason;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * สร้างรายการแบบเปล่า (ใช้โดย JPA)
+     */
+    public LoyaltyLedgerEntry() {}
+
+    /**
+     * สร้างรายการเคลื่อนไหวแต้ม (points เป็นบวกเมื่อได้รับ และติดลบเมื่อใช้แต้ม)
+     */
+    public LoyaltyLedgerEntry(Long customerId, int points, String reason, Long orderId) {
+        this.customerId = customerId;
+        this.points = points;
+        this.reason = reason;
+        this.orderId = orderId;
+    }
+
+    /**
+     * คืนรหัสรายการ
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * คืนรหัสลูกค้า
+     */
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * คืนจำนวนแต้มที่เปลี่ยนแปลง
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * คืนเหตุผลของรายการ (EARN, REDEEM หรือ ADJUST)
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * คืนรหัสออเดอร์ที่เกี่ยวข้อง (ถ้ามี)
+     */
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * คืนเวลาที่บันทึกรายการ
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
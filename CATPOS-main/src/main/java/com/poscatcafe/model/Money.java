@@ -0,0 +1,148 @@
+package com.poscatcafe.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import jakarta.persistence.AttributeConverter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * จำนวนเงินแบบทศนิยมคงที่ เก็บเป็นสตางค์ในตัวแปร long (100 สตางค์ = 1 บาท)
+ * ยอดเงินในตะกร้า ออเดอร์ ใบเสร็จ และรายงานคำนวณด้วย long ล้วน จึงไม่สร้างอ็อบเจกต์และผลรวมไม่คลาดเคลื่อน
+ * ฐานข้อมูลเก็บเป็น numeric(14,2) ผ่าน {@link Converter} ส่วน JSON เป็นตัวเลขบาททศนิยม 2 ตำแหน่งผ่าน
+ * {@link Serializer} และ {@link Deserializer} หน้าเว็บจึงยังรับส่งยอดเงินเป็นบาทเหมือนเดิม
+ */
+public final class Money {
+    /**
+     * จำนวนตำแหน่งทศนิยมของยอดเงินเป็นบาท
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * ชนิดคอลัมน์ของยอดเงินในฐานข้อมูล
+     */
+    public static final String COLUMN_TYPE = "numeric(14,2)";
+
+    private Money() {}
+
+    /**
+     * แปลงจำนวนบาทแบบ double (เช่น ราคาสินค้า) เป็นสตางค์ ปัดเศษครึ่งขึ้น
+     */
+    public static long ofBaht(double baht) {
+        return Math.round(baht * 100);
+    }
+
+    /**
+     * แปลงจำนวนบาทแบบทศนิยมเป็นสตางค์ ปัดเศษครึ่งขึ้น
+     */
+    public static long ofDecimal(BigDecimal baht) {
+        return baht.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * แปลงสตางค์เป็นจำนวนบาทแบบทศนิยม 2 ตำแหน่ง
+     */
+    public static BigDecimal toDecimal(long satang) {
+        return BigDecimal.valueOf(satang, SCALE);
+    }
+
+    /**
+     * คูณราคาต่อหน่วยด้วยจำนวน (โยน ArithmeticException หากเกินช่วงของ long)
+     */
+    public static long times(long satang, int quantity) {
+        return Math.multiplyExact(satang, quantity);
+    }
+
+    /**
+     * เขียนจำนวนเงินเป็นบาททศนิยม 2 ตำแหน่ง (เช่น 1234.50 หรือ -0.05) โดยไม่สร้างอ็อบเจกต์ใหม่
+     */
+    public static void append(StringBuilder out, long satang) {
+        if (satang < 0) {
+            out.append('-');
+        }
+        // หารก่อนแล้วค่อยเอาค่าสัมบูรณ์ เพื่อให้ Long.MIN_VALUE ถูกต้องด้วย
+        long baht = Math.abs(satang / 100);
+        int fraction = (int) Math.abs(satang % 100);
+        out.append(baht).append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    /**
+     * คืนจำนวนเงินเป็นข้อความบาททศนิยม 2 ตำแหน่ง
+     */
+    public static String format(long satang) {
+        StringBuilder out = new StringBuilder(24);
+        append(out, satang);
+        return out.toString();
+    }
+
+    /**
+     * แปลงสตางค์เป็นคอลัมน์ numeric ของฐานข้อมูล (ใช้ผ่าน @Convert บนฟิลด์ยอดเงิน)
+     * ค่า null ในฐานข้อมูลจากข้อมูลเก่าถูกอ่านเป็นศูนย์
+     */
+    @jakarta.persistence.Converter
+    public static final class Converter implements AttributeConverter<Long, BigDecimal> {
+        @Override
+        public BigDecimal convertToDatabaseColumn(Long satang) {
+            return satang != null ? toDecimal(satang) : null;
+        }
+
+        @Override
+        public Long convertToEntityAttribute(BigDecimal baht) {
+            return baht != null ? ofDecimal(baht) : 0L;
+        }
+    }
+
+    /**
+     * เขียนสตางค์เป็นตัวเลข JSON หน่วยบาท (เช่น 4550 เป็น 45.50)
+     */
+    public static final class Serializer extends StdSerializer<Long> {
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long satang, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(format(satang));
+        }
+    }
+
+    /**
+     * อ่านตัวเลข JSON หน่วยบาท (หรือข้อความตัวเลข) เป็นสตางค์ ปัดเศษครึ่งขึ้น
+     */
+    public static final class Deserializer extends StdDeserializer<Long> {
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return ofDecimal(p.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                String text = p.getText().trim();
+                if (text.isEmpty()) {
+                    return getNullValue(ctxt);
+                }
+                try {
+                    return ofDecimal(new BigDecimal(text));
+                } catch (NumberFormatException e) {
+                    return (Long) ctxt.handleWeirdStringValue(Long.class, text, "not a valid amount");
+                }
+            }
+            return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.poscatcafe.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -18,7 +23,7 @@ import java.util.List;
  * แทนข้อมูลออเดอร์ทั้งหมด รวมถึงลูกค้าและรายการสินค้า
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_date_id", columnList = "order_date, id"))
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,11 +37,19 @@ public class Order {
     @Column(name = "order_date")
     private LocalDateTime orderDate = LocalDateTime.now();
 
-    private double totalAmount;
+    @Column(precision = 14, scale = 2)
+    @Convert(converter = Money.Converter.class)
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long totalAmount;
 
     private String paymentMethod;
 
-    private Double discountAmount = 0.0;
+    @Column(precision = 14, scale = 2)
+    @Convert(converter = Money.Converter.class)
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long discountAmount;
 
     @Column(unique = true)
     private String receiptNo;
@@ -102,16 +115,16 @@ public class Order {
     }
 
     /**
-     * คืนยอดรวมสุทธิของออเดอร์
+     * คืนยอดรวมสุทธิของออเดอร์ (สตางค์)
      */
-    public double getTotalAmount() {
+    public long getTotalAmount() {
         return totalAmount;
     }
 
     /**
-     * กำหนดยอดรวมสุทธิของออเดอร์
+     * กำหนดยอดรวมสุทธิของออเดอร์ (สตางค์)
      */
-    public void setTotalAmount(double totalAmount) {
+    public void setTotalAmount(long totalAmount) {
         this.totalAmount = totalAmount;
     }
 
@@ -130,16 +143,16 @@ public class Order {
     }
 
     /**
-     * คืนจำนวนส่วนลดที่ใช้กับออเดอร์
+     * คืนจำนวนส่วนลดที่ใช้กับออเดอร์ (สตางค์)
      */
-    public Double getDiscountAmount() {
+    public long getDiscountAmount() {
         return discountAmount;
     }
 
     /**
-     * กำหนดจำนวนส่วนลดที่ใช้กับออเดอร์
+     * กำหนดจำนวนส่วนลดที่ใช้กับออเดอร์ (สตางค์)
      */
-    public void setDiscountAmount(Double discountAmount) {
+    public void setDiscountAmount(long discountAmount) {
         this.discountAmount = discountAmount;
     }
 
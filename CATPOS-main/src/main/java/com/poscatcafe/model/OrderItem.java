@@ -1,5 +1,10 @@
 package com.poscatcafe.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -24,10 +29,17 @@ public class OrderItem {
     @Min(1)
     private int quantity;
 
-    @Min(0)
-    private double price;
+    @Column(precision = 14, scale = 2)
+    @Convert(converter = Money.Converter.class)
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long price;
 
-    private double subtotal; // Store calculated subtotal
+    @Column(precision = 14, scale = 2)
+    @Convert(converter = Money.Converter.class)
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long subtotal; // Store calculated subtotal
 
     /**
      * คืนรหัสรายการสินค้าในออเดอร์
@@ -86,30 +98,30 @@ public class OrderItem {
     }
 
     /**
-     * คืนราคาต่อหน่วยของสินค้าในออเดอร์
+     * คืนราคาต่อหน่วยของสินค้าในออเดอร์ (สตางค์)
      */
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
     /**
-     * กำหนดราคาต่อหน่วยของสินค้าในออเดอร์
+     * กำหนดราคาต่อหน่วยของสินค้าในออเดอร์ (สตางค์)
      */
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
     /**
-     * คืนยอดรวมย่อยของรายการสินค้า
+     * คืนยอดรวมย่อยของรายการสินค้า (สตางค์)
      */
-    public double getSubtotal() {
+    public long getSubtotal() {
         return subtotal;
     }
 
     /**
-     * กำหนดยอดรวมย่อยของรายการสินค้า
+     * กำหนดยอดรวมย่อยของรายการสินค้า (สตางค์)
      */
-    public void setSubtotal(double subtotal) {
+    public void setSubtotal(long subtotal) {
         this.subtotal = subtotal;
     }
 }
\ No newline at end of file
@@ -136,4 +136,11 @@ public class Product {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    /**
+     * คืน URL รูปย่อสำหรับตารางสินค้า (สร้างในเบื้องหลังหลังอัปโหลด) หรือ URL รูปเดิมถ้าเป็นรูปจากภายนอก
+     */
+    public String getThumbnailUrl() {
+        return ProductImages.thumbnailUrl(imageUrl, ProductImages.GRID);
+    }
 }
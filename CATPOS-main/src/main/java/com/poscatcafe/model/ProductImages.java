@@ -0,0 +1,42 @@
+package com.poscatcafe.model;
+
+/**
+ * ชื่อและ URL ของรูปสินค้าที่อัปโหลดไว้และรูปย่อของรูปนั้น
+ * รูปย่อตั้งชื่อตามรูปต้นฉบับ เช่น abc.png -> abc_grid.jpg, abc_detail.jpg
+ */
+public final class ProductImages {
+    /**
+     * ส่วนต้นของ URL รูปสินค้าที่อัปโหลดไว้
+     */
+    public static final String URL_PREFIX = "/uploads/products/";
+
+    /**
+     * ขนาดรูปย่อสำหรับตารางสินค้า
+     */
+    public static final String GRID = "grid";
+
+    /**
+     * ขนาดรูปย่อสำหรับหน้ารายละเอียดสินค้า
+     */
+    public static final String DETAIL = "detail";
+
+    /**
+     * นามสกุลไฟล์ของรูปย่อ (JPEG)
+     */
+    public static final String THUMBNAIL_EXT = ".jpg";
+
+    private ProductImages() {}
+
+    /**
+     * คืน URL รูปย่อตามขนาดที่ระบุ (GRID หรือ DETAIL) ของรูปสินค้าที่อัปโหลดไว้
+     * รูปจากภายนอก (URL เต็ม) หรือค่าว่างจะคืนค่าเดิม
+     */
+    public static String thumbnailUrl(String imageUrl, String size) {
+        if (imageUrl == null || !imageUrl.startsWith(URL_PREFIX)) {
+            return imageUrl;
+        }
+        int dot = imageUrl.lastIndexOf('.');
+        String base = dot > URL_PREFIX.length() ? imageUrl.substring(0, dot) : imageUrl;
+        return base + "_" + size + THUMBNAIL_EXT;
+    }
+}
@@ -0,0 +1,60 @@
+package com.poscatcafe.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * จำนวนที่ขายได้สะสมของสินค้าแต่ละรายการ ปรับปรุงพร้อมกับการบันทึกออเดอร์
+ */
+@Entity
+@Table(name = "product_sales_summary")
+public class ProductSalesSummary {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    private long quantity;
+
+    /**
+     * สร้างยอดสรุปสินค้าแบบเปล่า (ใช้โดย JPA)
+     */
+    public ProductSalesSummary() {}
+
+    /**
+     * สร้างยอดสรุปสินค้าพร้อมจำนวนเริ่มต้น
+     */
+    public ProductSalesSummary(Long productId, long quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    /**
+     * คืนรหัสสินค้า
+     */
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * กำหนดรหัสสินค้า
+     */
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    /**
+     * คืนจำนวนที่ขายได้สะสม
+     */
+    public long getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * กำหนดจำนวนที่ขายได้สะสม
+     */
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,61 @@
+package com.poscatcafe.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * ใบเสร็จ HTML ที่เรนเดอร์แล้วและบีบอัดด้วย gzip เก็บแบบเพิ่มอย่างเดียว (ไม่แก้ไขภายหลัง) ตามเลขที่ใบเสร็จ
+ * ใช้พิมพ์ซ้ำได้ตรงตามใบที่ออกจริง โดยไม่ต้องอ่านออเดอร์และรายการสินค้า
+ */
+@Entity
+@Table(name = "receipt_archive")
+public class ReceiptArchiveEntry {
+    @Id
+    @Column(name = "receipt_no", length = 32)
+    private String receiptNo;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "html_gzip", nullable = false)
+    private byte[] htmlGzip;
+
+    /**
+     * สร้างรายการใบเสร็จแบบเปล่า (ใช้โดย JPA)
+     */
+    public ReceiptArchiveEntry() {}
+
+    /**
+     * คืนเลขที่ใบเสร็จ
+     */
+    public String getReceiptNo() {
+        return receiptNo;
+    }
+
+    /**
+     * คืนรหัสออเดอร์ของใบเสร็จ
+     */
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * คืนเวลาที่เก็บใบเสร็จ
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * คืนเนื้อหา HTML ที่บีบอัดด้วย gzip
+     */
+    public byte[] getHtmlGzip() {
+        return htmlGzip;
+    }
+}
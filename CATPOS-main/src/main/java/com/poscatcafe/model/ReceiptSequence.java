@@ -0,0 +1,61 @@
+package com.poscatcafe.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDate;
+
+/**
+ * ตัวนับเลขที่ใบเสร็จรายวัน เก็บเลขถัดไปที่ยังไม่ถูกจองของแต่ละวัน
+ */
+@Entity
+@Table(name = "receipt_sequence")
+public class ReceiptSequence {
+    @Id
+    @Column(name = "seq_date")
+    private LocalDate seqDate;
+
+    private long nextValue;
+
+    /**
+     * สร้างตัวนับแบบเปล่า (ใช้โดย JPA)
+     */
+    public ReceiptSequence() {}
+
+    /**
+     * สร้างตัวนับของวันที่ระบุพร้อมเลขถัดไป
+     */
+    public ReceiptSequence(LocalDate seqDate, long nextValue) {
+        this.seqDate = seqDate;
+        this.nextValue = nextValue;
+    }
+
+    /**
+     * คืนวันที่ของตัวนับ
+     */
+    public LocalDate getSeqDate() {
+        return seqDate;
+    }
+
+    /**
+     * กำหนดวันที่ของตัวนับ
+     */
+    public void setSeqDate(LocalDate seqDate) {
+        this.seqDate = seqDate;
+    }
+
+    /**
+     * คืนเลขถัดไปที่ยังไม่ถูกจอง
+     */
+    public long getNextValue() {
+        return nextValue;
+    }
+
+    /**
+     * กำหนดเลขถัดไปที่ยังไม่ถูกจอง
+     */
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
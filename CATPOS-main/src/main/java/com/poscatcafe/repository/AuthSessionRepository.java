@@ -0,0 +1,31 @@
+package com.poscatcafe.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.AuthSession;
+import java.time.LocalDateTime;
+
+/**
+ * จัดการเซสชันที่เก็บในฐานข้อมูล
+ */
+public interface AuthSessionRepository extends JpaRepository<AuthSession, String> {
+
+    /**
+     * ต่ออายุเซสชันเฉพาะเมื่อเวลาใช้งานล่าสุดเก่ากว่า staleBefore เพื่อไม่ให้ทุกคำขอต้องเขียนฐานข้อมูล
+     */
+    @Modifying
+    @Query("update AuthSession s set s.lastAccessed = :now "
+            + "where s.tokenHash = :tokenHash and s.lastAccessed < :staleBefore")
+    int refresh(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * ลบเซสชันที่ไม่ได้ใช้งานตั้งแต่ก่อนเวลาที่กำหนด คืนจำนวนที่ลบ
+     */
+    @Modifying
+    @Query("delete from AuthSession s where s.lastAccessed < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
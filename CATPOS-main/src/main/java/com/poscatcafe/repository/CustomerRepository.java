@@ -1,10 +1,51 @@
 package com.poscatcafe.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.poscatcafe.model.Customer;
+import java.util.List;
 
 /**
  * จัดการข้อมูลลูกค้าในฐานข้อมูล
  */
-public interface CustomerRepository extends JpaRepository<Customer, Long> {}
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    /**
+     * ข้อมูลเฉพาะฟิลด์ที่ใช้ค้นหาลูกค้า
+     */
+    interface SearchRow {
+        Long getId();
+
+        String getName();
+
+        String getPhone();
+    }
+
+    /**
+     * ดึงเฉพาะรหัส ชื่อ และเบอร์โทรของลูกค้าทุกคน สำหรับสร้างดัชนีค้นหาในหน่วยความจำ
+     */
+    @Query("select c.id as id, c.name as name, c.phone as phone from Customer c order by c.id")
+    List<SearchRow> findAllSearchRows();
+
+    /**
+     * เพิ่มแต้มแบบอะตอมมิกในฐานข้อมูล คืน 1 เมื่อสำเร็จ หรือ 0 เมื่อไม่พบลูกค้า
+     */
+    @Modifying
+    @Query("update Customer c set c.loyaltyPoints = coalesce(c.loyaltyPoints, 0) + :points where c.id = :id")
+    int addPoints(@Param("id") Long id, @Param("points") int points);
+
+    /**
+     * หักแต้มแบบอะตอมมิกเฉพาะเมื่อแต้มคงเหลือพอ คืน 1 เมื่อหักสำเร็จ หรือ 0 เมื่อแต้มไม่พอ/ไม่พบลูกค้า
+     */
+    @Modifying
+    @Query("update Customer c set c.loyaltyPoints = c.loyaltyPoints - :points where c.id = :id and c.loyaltyPoints >= :points")
+    int deductPoints(@Param("id") Long id, @Param("points") int points);
+
+    /**
+     * อ่านแต้มคงเหลือล่าสุดของลูกค้า
+     */
+    @Query("select c.loyaltyPoints from Customer c where c.id = :id")
+    Integer findPoints(@Param("id") Long id);
+}
@@ -0,0 +1,57 @@
+package com.poscatcafe.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.DailySalesSummary;
+
+/**
+ * จัดการยอดขายสะสมรายวันในฐานข้อมูล
+ */
+public interface DailySalesSummaryRepository extends JpaRepository<DailySalesSummary, LocalDate> {
+
+    /**
+     * ดึงยอดสรุปทุกวันเรียงตามวันที่
+     */
+    List<DailySalesSummary> findAllByOrderBySalesDateAsc();
+
+    /**
+     * ล็อกตารางสรุปทั้งสองตารางจนจบ transaction: การบวกยอดของออเดอร์ที่ชำระพร้อมกันจะรอจนคำนวณใหม่เสร็จ
+     * ส่วนการอ่านรายงานยังทำได้ตามปกติ
+     */
+    @Modifying
+    @Query(value = "lock table daily_sales_summary, product_sales_summary in exclusive mode", nativeQuery = true)
+    void lockForRebuild();
+
+    /**
+     * บวกยอดขายและจำนวนออเดอร์เข้ากับแถวของวันที่ระบุ คืนจำนวนแถวที่ถูกปรับปรุง
+     */
+    @Modifying
+    @Query(value = "update daily_sales_summary set total_sales = total_sales + :amount, "
+            + "order_count = order_count + :orders where sales_date = :salesDate", nativeQuery = true)
+    int increment(@Param("salesDate") LocalDate salesDate, @Param("amount") BigDecimal amount,
+            @Param("orders") long orders);
+
+    /**
+     * สร้างแถวค่าศูนย์ของวันที่ระบุหากยังไม่มี หากอีก transaction กำลังสร้างแถวเดียวกันอยู่
+     * คำสั่งนี้จะรอจนอีกฝ่าย commit แล้วไม่ทำอะไร จึงไม่ชน primary key
+     */
+    @Modifying
+    @Query(value = "insert into daily_sales_summary (sales_date, total_sales, order_count) "
+            + "values (:salesDate, 0, 0) on conflict (sales_date) do nothing", nativeQuery = true)
+    int createIfAbsent(@Param("salesDate") LocalDate salesDate);
+
+    /**
+     * สร้างยอดสรุปรายวันใหม่ทั้งหมดจากตาราง orders (ต้องล้างตารางก่อนเรียก)
+     */
+    @Modifying
+    @Query(value = "insert into daily_sales_summary (sales_date, total_sales, order_count) "
+            + "select cast(o.order_date as date), sum(o.total_amount), count(*) from orders o "
+            + "where o.order_date is not null group by cast(o.order_date as date)", nativeQuery = true)
+    int rebuildFromOrders();
+}
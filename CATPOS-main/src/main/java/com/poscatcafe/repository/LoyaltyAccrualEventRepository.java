@@ -0,0 +1,32 @@
+package com.poscatcafe.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.LoyaltyAccrualEvent;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * จัดการเหตุการณ์รอสะสมแต้มในตาราง outbox
+ */
+public interface LoyaltyAccrualEventRepository extends JpaRepository<LoyaltyAccrualEvent, Long> {
+
+    /**
+     * ดึงเหตุการณ์ที่ยังไม่ถูกประมวลผลตามลำดับที่เกิด
+     */
+    @Query("select e from LoyaltyAccrualEvent e where e.processedAt is null order by e.id")
+    List<LoyaltyAccrualEvent> findPending(Pageable pageable);
+
+    /**
+     * ทำเครื่องหมายว่าประมวลผลแล้วเฉพาะรายการที่ยังรออยู่ คืนจำนวนแถวที่อ้างสิทธิ์ได้
+     * หากน้อยกว่าจำนวนที่ส่งมาแปลว่าอีกเธรด/อินสแตนซ์ประมวลผลไปแล้วบางส่วน
+     */
+    @Modifying
+    @Query("update LoyaltyAccrualEvent e set e.processedAt = :now where e.id in :ids and e.processedAt is null")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,43 @@
+package com.poscatcafe.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.LoyaltyLedgerEntry;
+
+/**
+ * จัดการรายการเคลื่อนไหวแต้มสะสมในฐานข้อมูล
+ */
+public interface LoyaltyLedgerRepository extends JpaRepository<LoyaltyLedgerEntry, Long> {
+
+    /**
+     * รวมแต้มทั้งหมดในสมุดบัญชีของลูกค้า ใช้ตรวจสอบกับยอดคงเหลือบน Customer
+     */
+    @Query("select coalesce(sum(e.points), 0) from LoyaltyLedgerEntry e where e.customerId = :customerId")
+    long sumPoints(@Param("customerId") Long customerId);
+
+    /**
+     * สร้างรายการยอดยกมาให้ลูกค้าที่มีแต้มคงเหลือแต่ยังไม่มีรายการในสมุดบัญชี
+     */
+    @Modifying
+    @Query(value = "insert into loyalty_ledger (customer_id, points, reason, created_at) "
+            + "select c.id, c.loyalty_points, 'ADJUST', current_timestamp from customer c "
+            + "where c.loyalty_points <> 0 "
+            + "and not exists (select 1 from loyalty_ledger l where l.customer_id = c.id)",
+            nativeQuery = true)
+    int insertOpeningBalances();
+
+    /**
+     * บันทึกแต้มที่ได้จากออเดอร์ครั้งเดียวต่อออเดอร์ คืน 1 เมื่อบันทึกใหม่
+     * หรือ 0 เมื่อออเดอร์นี้มีรายการ EARN อยู่แล้ว (เหตุการณ์ซ้ำ) หรือไม่พบลูกค้า
+     */
+    @Modifying
+    @Query(value = "insert into loyalty_ledger (customer_id, points, reason, order_id, created_at) "
+            + "select c.id, :points, 'EARN', :orderId, current_timestamp from customer c where c.id = :customerId "
+            + "on conflict (order_id, reason) do nothing",
+            nativeQuery = true)
+    int insertEarnIfAbsent(
+            @Param("customerId") Long customerId, @Param("orderId") Long orderId, @Param("points") int points);
+}
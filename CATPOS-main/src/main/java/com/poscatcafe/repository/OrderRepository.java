@@ -2,7 +2,12 @@ package com.poscatcafe.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.poscatcafe.model.Order;
 
@@ -12,7 +17,42 @@ import com.poscatcafe.model.Order;
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
     /**
-     * ค้นหาออเดอร์ภายในช่วงเวลาที่กำหนด
+     * ค้นหาออเดอร์ภายในช่วงเวลาที่กำหนด พร้อมโหลดรายการสินค้า สินค้า และลูกค้าในคิวรีเดียว
      */
+    @EntityGraph(attributePaths = {"items", "items.product", "customer"})
     List<Order> findByOrderDateBetween(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * ค้นหาออเดอร์ตามรหัสพร้อมโหลดรายการสินค้าในคิวรีเดียว (สำหรับพิมพ์ใบเสร็จ)
+     */
+    @EntityGraph(attributePaths = {"items"})
+    Optional<Order> findWithItemsById(Long id);
+
+    /**
+     * ค้นหาออเดอร์ตามเลขที่ใบเสร็จพร้อมโหลดรายการสินค้าในคิวรีเดียว
+     */
+    @EntityGraph(attributePaths = {"items"})
+    Optional<Order> findWithItemsByReceiptNo(String receiptNo);
+
+    /**
+     * ดึงหน้าแรกของออเดอร์ในช่วงเวลา เรียงจากใหม่ไปเก่าตาม (order_date, id)
+     * (ไม่ fetch join รายการสินค้าเพื่อให้ LIMIT ทำงานที่ฐานข้อมูล รายการสินค้าโหลดเป็นชุดผ่าน batch fetch)
+     */
+    @Query("select o from Order o where o.orderDate between :start and :end "
+            + "order by o.orderDate desc, o.id desc")
+    List<Order> findPage(
+            @Param("start") LocalDateTime start, @Param("end") LocalDateTime end, Pageable limit);
+
+    /**
+     * ดึงหน้าถัดไปของออเดอร์ต่อจากเคอร์เซอร์ (order_date, id) ของแถวสุดท้ายในหน้าก่อน
+     */
+    @Query("select o from Order o where o.orderDate between :start and :end "
+            + "and (o.orderDate < :afterDate or (o.orderDate = :afterDate and o.id < :afterId)) "
+            + "order by o.orderDate desc, o.id desc")
+    List<Order> findPageAfter(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId,
+            Pageable limit);
 }
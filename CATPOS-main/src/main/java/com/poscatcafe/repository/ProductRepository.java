@@ -1,6 +1,9 @@
 package com.poscatcafe.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.poscatcafe.model.Product;
 
@@ -13,4 +16,11 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * ค้นหาสินค้าจากรหัสสินค้า
      */
     Product findByCode(String code);
+
+    /**
+     * หักสต็อกแบบอะตอมมิกเฉพาะเมื่อคงเหลือพอ คืน 1 เมื่อหักสำเร็จ หรือ 0 เมื่อสต็อกไม่พอ/ไม่พบสินค้า
+     */
+    @Modifying
+    @Query("update Product p set p.stock = p.stock - :quantity where p.id = :id and p.stock >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,56 @@
+package com.poscatcafe.repository;
+
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.ProductSalesSummary;
+
+/**
+ * จัดการจำนวนขายสะสมของสินค้าในฐานข้อมูล
+ */
+public interface ProductSalesSummaryRepository extends JpaRepository<ProductSalesSummary, Long> {
+
+    /**
+     * ชื่อสินค้าและจำนวนที่ขายได้สะสม
+     */
+    interface ProductQuantity {
+        String getName();
+
+        long getQuantity();
+    }
+
+    /**
+     * ดึงจำนวนขายสะสมพร้อมชื่อสินค้าปัจจุบัน
+     */
+    @Query("select p.name as name, s.quantity as quantity "
+            + "from ProductSalesSummary s join Product p on p.id = s.productId")
+    List<ProductQuantity> findAllWithProductName();
+
+    /**
+     * บวกจำนวนที่ขายได้เข้ากับสินค้าที่ระบุ คืนจำนวนแถวที่ถูกปรับปรุง
+     */
+    @Modifying
+    @Query("update ProductSalesSummary s set s.quantity = s.quantity + :quantity where s.productId = :productId")
+    int increment(@Param("productId") Long productId, @Param("quantity") long quantity);
+
+    /**
+     * สร้างแถวค่าศูนย์ของสินค้าหากยังไม่มี หากอีก transaction กำลังสร้างแถวเดียวกันอยู่
+     * คำสั่งนี้จะรอจนอีกฝ่าย commit แล้วไม่ทำอะไร จึงไม่ชน primary key
+     */
+    @Modifying
+    @Query(value = "insert into product_sales_summary (product_id, quantity) "
+            + "values (:productId, 0) on conflict (product_id) do nothing", nativeQuery = true)
+    int createIfAbsent(@Param("productId") Long productId);
+
+    /**
+     * สร้างจำนวนขายสะสมใหม่ทั้งหมดจากตาราง order_item (ต้องล้างตารางก่อนเรียก)
+     */
+    @Modifying
+    @Query(value = "insert into product_sales_summary (product_id, quantity) "
+            + "select oi.product_id, sum(oi.quantity) from order_item oi "
+            + "where oi.order_id is not null group by oi.product_id", nativeQuery = true)
+    int rebuildFromOrderItems();
+}
@@ -0,0 +1,31 @@
+package com.poscatcafe.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.ReceiptArchiveEntry;
+
+/**
+ * เข้าถึงคลังใบเสร็จที่เรนเดอร์แล้ว
+ */
+public interface ReceiptArchiveRepository extends JpaRepository<ReceiptArchiveEntry, String> {
+
+    /**
+     * เพิ่มใบเสร็จเข้าคลังโดยไม่อ่านแถวเดิมก่อน หากเลขที่ใบเสร็จนี้มีอยู่แล้วจะไม่ทำอะไร (ใบที่เก็บไว้ไม่ถูกเขียนทับ)
+     */
+    @Modifying
+    @Query(value = "insert into receipt_archive (receipt_no, order_id, created_at, html_gzip) "
+            + "values (:receiptNo, :orderId, :createdAt, :htmlGzip) on conflict (receipt_no) do nothing", nativeQuery = true)
+    int append(@Param("receiptNo") String receiptNo, @Param("orderId") Long orderId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("htmlGzip") byte[] htmlGzip);
+
+    /**
+     * อ่านเฉพาะเนื้อหาที่บีบอัดของใบเสร็จ
+     */
+    @Query("select r.htmlGzip from ReceiptArchiveEntry r where r.receiptNo = :receiptNo")
+    Optional<byte[]> findHtmlGzip(@Param("receiptNo") String receiptNo);
+}
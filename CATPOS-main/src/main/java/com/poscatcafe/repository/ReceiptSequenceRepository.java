@@ -0,0 +1,36 @@
+package com.poscatcafe.repository;
+
+import java.time.LocalDate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.ReceiptSequence;
+
+/**
+ * จัดการตัวนับเลขที่ใบเสร็จรายวันในฐานข้อมูล
+ */
+public interface ReceiptSequenceRepository extends JpaRepository<ReceiptSequence, LocalDate> {
+
+    /**
+     * เลื่อนตัวนับของวันไปข้างหน้าตามขนาดบล็อก (ล็อกแถวไว้จนจบ transaction) คืนจำนวนแถวที่ถูกปรับปรุง
+     */
+    @Modifying
+    @Query("update ReceiptSequence s set s.nextValue = s.nextValue + :blockSize where s.seqDate = :seqDate")
+    int advance(@Param("seqDate") LocalDate seqDate, @Param("blockSize") long blockSize);
+
+    /**
+     * สร้างแถวตัวนับของวันที่เริ่มที่ 1 หากยังไม่มี (ไม่เขียนทับแถวที่อีกอินสแตนซ์เพิ่งสร้าง)
+     */
+    @Modifying
+    @Query(value = "insert into receipt_sequence (seq_date, next_value) values (:seqDate, 1) "
+            + "on conflict (seq_date) do nothing", nativeQuery = true)
+    int createIfAbsent(@Param("seqDate") LocalDate seqDate);
+
+    /**
+     * อ่านเลขถัดไปของวันจากฐานข้อมูลโดยตรง
+     */
+    @Query("select s.nextValue from ReceiptSequence s where s.seqDate = :seqDate")
+    Long currentValue(@Param("seqDate") LocalDate seqDate);
+}
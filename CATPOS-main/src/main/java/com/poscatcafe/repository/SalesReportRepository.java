@@ -0,0 +1,69 @@
+package com.poscatcafe.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import com.poscatcafe.model.Order;
+
+/**
+ * คิวรีรายงานยอดขายที่ให้ฐานข้อมูลรวมยอดเอง คืนเฉพาะแถวสรุปแทนออเดอร์ทั้งก้อน
+ */
+public interface SalesReportRepository extends Repository<Order, Long> {
+
+    /**
+     * ยอดขายและจำนวนออเดอร์ของหนึ่งวัน
+     */
+    interface DailySales {
+        LocalDate getDay();
+
+        BigDecimal getTotal();
+
+        long getOrders();
+    }
+
+    /**
+     * จำนวนและยอดขายของสินค้าหนึ่งรายการ
+     */
+    interface ProductSales {
+        Long getProductId();
+
+        String getName();
+
+        long getQuantity();
+
+        BigDecimal getTotal();
+    }
+
+    /**
+     * รวมยอดขายรายวันภายในช่วงเวลาที่กำหนด เรียงตามวันที่
+     */
+    @Query("select cast(o.orderDate as LocalDate) as day, sum(cast(o.totalAmount as BigDecimal)) as total, count(o) as orders "
+            + "from Order o where o.orderDate between :start and :end "
+            + "group by cast(o.orderDate as LocalDate) order by cast(o.orderDate as LocalDate)")
+    List<DailySales> sumSalesByDay(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * รวมจำนวนและยอดขายรายสินค้าภายในช่วงเวลาที่กำหนด
+     */
+    @Query("select p.id as productId, p.name as name, sum(i.quantity) as quantity, sum(cast(i.subtotal as BigDecimal)) as total "
+            + "from Order o join o.items i join i.product p where o.orderDate between :start and :end "
+            + "group by p.id, p.name order by p.name")
+    List<ProductSales> sumSalesByProduct(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * นับจำนวนออเดอร์ภายในช่วงเวลาที่กำหนด
+     */
+    @Query("select count(o) from Order o where o.orderDate between :start and :end")
+    long countOrders(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * รวมยอดขายสุทธิภายในช่วงเวลาที่กำหนด
+     */
+    @Query("select coalesce(sum(cast(o.totalAmount as BigDecimal)), 0) from Order o where o.orderDate between :start and :end")
+    BigDecimal sumTotal(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -1,103 +1,93 @@
 package com.poscatcafe.service;
 
+import com.poscatcafe.dto.AuthPrincipal;
 import com.poscatcafe.dto.LoginRequestDTO;
 import com.poscatcafe.dto.LoginResponseDTO;
 import com.poscatcafe.model.Employee;
 import com.poscatcafe.repository.EmployeeRepository;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.UUID;
-import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * จัดการการเข้าสู่ระบบและการจัดการเซสชันของผู้ใช้
  */
 @Service
 public class AuthService {
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+    private static final int PRINCIPAL_CACHE_SIZE = 1024;
+
     private final EmployeeRepository employeeRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
-    private final Map<String, SessionInfo> activeSessions = new ConcurrentHashMap<>(); // token -> session info
+    private final PasswordHasher passwordHasher;
+    private final SessionStore sessionStore;
+
+    // รหัสพนักงาน -> ข้อมูลผู้ใช้ จำกัดขนาดแบบ LRU เพื่อไม่ต้องอ่านตารางพนักงานทุกคำขอ
+    private final Map<Long, AuthPrincipal> principals = new LinkedHashMap<>(PRINCIPAL_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AuthPrincipal> eldest) {
+            return size() > PRINCIPAL_CACHE_SIZE;
+        }
+    };
 
     /**
      * สร้างบริการยืนยันตัวตนพร้อมกำหนดผู้ใช้เริ่มต้น
      */
-    public AuthService(EmployeeRepository employeeRepository) {
+    public AuthService(EmployeeRepository employeeRepository, SessionStore sessionStore, PasswordHasher passwordHasher) {
         this.employeeRepository = employeeRepository;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.sessionStore = sessionStore;
+        this.passwordHasher = passwordHasher;
         createDefaultEmployees();
     }
 
     /**
-     * เก็บข้อมูลเซสชันของผู้ใช้แต่ละคน
+     * ตรวจสอบข้อมูลเข้าสู่ระบบและสร้างเซสชันใหม่เมื่อสำเร็จ
+     * ทำทั้งหมดในเธรดพูลของ PasswordHasher เพื่อไม่ให้เธรดของคำขอ (และ connection ที่ผูกกับคำขอ) ถูกใช้ระหว่างรอ BCrypt
+     * โยน RejectedExecutionException ทันทีเมื่อคิวตรวจรหัสผ่านเต็ม ให้ผู้เรียกตอบกลับให้ลองใหม่ภายหลัง
      */
-    private static class SessionInfo {
-        final Long employeeId;
-        final LocalDateTime createdAt;
-        final LocalDateTime lastAccessed;
-
-        /**
-         * สร้างเซสชันใหม่พร้อมบันทึกเวลาปัจจุบัน
-         */
-        public SessionInfo(Long employeeId) {
-            this.employeeId = employeeId;
-            this.createdAt = LocalDateTime.now();
-            this.lastAccessed = LocalDateTime.now();
-        }
-
-        /**
-         * คืนสำเนาเซสชันพร้อมอัปเดตเวลาที่เข้าถึงล่าสุด
-         */
-        public SessionInfo updateLastAccessed() {
-            return new SessionInfo(employeeId, createdAt, LocalDateTime.now());
-        }
-
-        /**
-         * สร้างเซสชันจากค่าที่ระบุไว้ทั้งหมด
-         */
-        public SessionInfo(Long employeeId, LocalDateTime createdAt, LocalDateTime lastAccessed) {
-            this.employeeId = employeeId;
-            this.createdAt = createdAt;
-            this.lastAccessed = lastAccessed;
-        }
-
-        /**
-         * ตรวจสอบว่าเซสชันหมดอายุหรือไม่ตามเวลาที่กำหนด
-         */
-        public boolean isExpired() {
-            return lastAccessed.isBefore(LocalDateTime.now().minusHours(8)); // 8 hour session timeout
-        }
+    public CompletableFuture<LoginResponseDTO> login(LoginRequestDTO request) {
+        return passwordHasher.submit(() -> {
+            try {
+                Employee employee = employeeRepository.findByUsername(request.getUsername()).orElse(null);
+
+                // Check user exists and password matches (with BCrypt hashing)
+                if (employee != null && passwordHasher.matches(request.getPassword(), employee.getPassword())) {
+                    if (passwordHasher.needsRehash(employee.getPassword())) {
+                        rehash(employee.getId(), employee.getPassword(), request.getPassword());
+                    }
+                    String sessionToken = UUID.randomUUID().toString();
+                    sessionStore.create(sessionToken, employee.getId());
+
+                    LoginResponseDTO.UserDTO userDTO = new LoginResponseDTO.UserDTO(
+                            employee.getId(), employee.getUsername(), employee.getName(), employee.getRole());
+
+                    LoginResponseDTO response = new LoginResponseDTO(true, "เข้าสู่ระบบสำเร็จ");
+                    response.setSessionToken(sessionToken);
+                    response.setUser(userDTO);
+                    return response;
+                } else {
+                    return new LoginResponseDTO(false, "ชื่อผู้ใช้หรือรหัสผ่านไม่ถูกต้อง");
+                }
+            } catch (Exception e) {
+                return new LoginResponseDTO(false, "เกิดข้อผิดพลาด: " + e.getMessage());
+            }
+        });
     }
 
     /**
-     * ตรวจสอบข้อมูลเข้าสู่ระบบและสร้างเซสชันใหม่เมื่อสำเร็จ
+     * เข้ารหัสรหัสผ่านใหม่ด้วยค่า cost ปัจจุบัน เมื่อรหัสที่เก็บไว้ใช้ค่า cost เก่า (ทำหลังตรวจรหัสผ่านถูกต้องแล้ว)
+     * เขียนทับเฉพาะเมื่อรหัสในฐานข้อมูลยังเป็นค่าเดิม เพื่อไม่ทับรหัสผ่านที่เพิ่งถูกเปลี่ยนไปพร้อมกัน
      */
-    public LoginResponseDTO login(LoginRequestDTO request) {
+    private void rehash(Long employeeId, String storedHash, String rawPassword) {
         try {
-            Employee employee = employeeRepository.findByUsername(request.getUsername()).orElse(null);
-
-            // Check user exists and password matches (with BCrypt hashing)
-            if (employee != null && passwordEncoder.matches(request.getPassword(), employee.getPassword())) {
-                // Clean up expired sessions first
-                cleanupExpiredSessions();
-
-                String sessionToken = UUID.randomUUID().toString();
-                activeSessions.put(sessionToken, new SessionInfo(employee.getId()));
-
-                LoginResponseDTO.UserDTO userDTO = new LoginResponseDTO.UserDTO(
-                        employee.getId(), employee.getUsername(), employee.getName(), employee.getRole());
-
-                LoginResponseDTO response = new LoginResponseDTO(true, "เข้าสู่ระบบสำเร็จ");
-                response.setSessionToken(sessionToken);
-                response.setUser(userDTO);
-                return response;
-            } else {
-                return new LoginResponseDTO(false, "ชื่อผู้ใช้หรือรหัสผ่านไม่ถูกต้อง");
-            }
-        } catch (Exception e) {
-            return new LoginResponseDTO(false, "เกิดข้อผิดพลาด: " + e.getMessage());
+            employeeRepository.replacePasswordHash(employeeId, storedHash, passwordHasher.encode(rawPassword));
+        } catch (RuntimeException e) {
+            // ไม่เป็นไร จะลองใหม่ในการล็อกอินครั้งถัดไป
+            log.warn("Could not re-hash the password of employee {}; will retry on the next login", employeeId, e);
         }
     }
 
@@ -105,35 +95,54 @@ public class AuthService {
      * ตรวจสอบว่าโทเคนเซสชันยังคงถูกต้องอยู่หรือไม่
      */
     public boolean isValidSession(String sessionToken) {
-        if (sessionToken == null || !activeSessions.containsKey(sessionToken)) {
-            return false;
-        }
+        return sessionToken != null && sessionStore.touch(sessionToken) != null;
+    }
 
-        SessionInfo sessionInfo = activeSessions.get(sessionToken);
-        if (sessionInfo.isExpired()) {
-            activeSessions.remove(sessionToken);
-            return false;
+    /**
+     * ตรวจสอบโทเคนเซสชันและคืนข้อมูลผู้ใช้เจ้าของเซสชัน หรือ null ถ้าโทเคนไม่ถูกต้อง/หมดอายุ/พนักงานถูกลบแล้ว
+     */
+    public AuthPrincipal authenticate(String sessionToken) {
+        if (sessionToken == null || sessionToken.isEmpty()) {
+            return null;
         }
-
-        // Update last accessed time
-        activeSessions.put(sessionToken, sessionInfo.updateLastAccessed());
-        return true;
+        Long employeeId = sessionStore.touch(sessionToken);
+        if (employeeId == null) {
+            return null;
+        }
+        synchronized (principals) {
+            AuthPrincipal cached = principals.get(employeeId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Employee employee = employeeRepository.findById(employeeId).orElse(null);
+        if (employee == null) {
+            return null;
+        }
+        AuthPrincipal principal = new AuthPrincipal(
+                employee.getId(), employee.getUsername(), employee.getName(), employee.getRole());
+        synchronized (principals) {
+            principals.put(employeeId, principal);
+        }
+        return principal;
     }
 
     /**
-     * ยกเลิกเซสชันตามโทเคนที่ระบุ
+     * ล้างข้อมูลผู้ใช้ที่แคชไว้ เมื่อข้อมูลพนักงานถูกแก้ไขหรือลบ
      */
-    public void logout(String sessionToken) {
-        if (sessionToken != null) {
-            activeSessions.remove(sessionToken);
+    public void evictPrincipal(Long employeeId) {
+        synchronized (principals) {
+            principals.remove(employeeId);
         }
     }
 
     /**
-     * ลบเซสชันที่หมดอายุออกจากรายการ
+     * ยกเลิกเซสชันตามโทเคนที่ระบุ
      */
-    private void cleanupExpiredSessions() {
-        activeSessions.entrySet().removeIf(entry -> entry.getValue().isExpired());
+    public void logout(String sessionToken) {
+        if (sessionToken != null) {
+            sessionStore.remove(sessionToken);
+        }
     }
 
     /**
@@ -144,7 +153,7 @@ public class AuthService {
             // Create admin user
             Employee admin = new Employee();
             admin.setUsername("admin");
-            admin.setPassword(passwordEncoder.encode("admin123"));
+            admin.setPassword(passwordHasher.encode("admin123"));
             admin.setName("ผู้ดูแลระบบ");
             admin.setRole("ADMIN");
             employeeRepository.save(admin);
@@ -152,7 +161,7 @@ public class AuthService {
             // Create manager user
             Employee manager = new Employee();
             manager.setUsername("manager");
-            manager.setPassword(passwordEncoder.encode("manager123"));
+            manager.setPassword(passwordHasher.encode("manager123"));
             manager.setName("ผู้จัดการ");
             manager.setRole("MANAGER");
             employeeRepository.save(manager);
@@ -160,7 +169,7 @@ public class AuthService {
             // Create cashier user
             Employee cashier = new Employee();
             cashier.setUsername("cashier");
-            cashier.setPassword(passwordEncoder.encode("cashier123"));
+            cashier.setPassword(passwordHasher.encode("cashier123"));
             cashier.setName("พนักงานขาย");
             cashier.setRole("CASHIER");
             employeeRepository.save(cashier);
@@ -3,10 +3,16 @@ package com.poscatcafe.service;
 import com.poscatcafe.dto.CartCalculationDTO;
 import com.poscatcafe.dto.CartItemDTO;
 import com.poscatcafe.model.Customer;
+import com.poscatcafe.model.Money;
 import com.poscatcafe.model.Product;
 
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * คำนวณยอดตะกร้าสินค้าและตรวจสอบสต็อก
@@ -31,11 +37,22 @@ public class CartService {
      * คำนวณยอดรวม ส่วนลด และแต้มสะสมของตะกร้าสินค้า
      */
     public CartCalculationDTO calculateCart(List<CartItemDTO> items, Long customerId, Boolean useCoupon) {
+        Map<Long, Product> products = productService.getAllById(productIds(items));
+        Customer customer = customerId != null && Boolean.TRUE.equals(useCoupon) ? customerService.get(customerId) : null;
+        return calculateCart(items, products, customer, useCoupon);
+    }
+
+    /**
+     * คำนวณตะกร้าจากสินค้าและลูกค้าที่โหลดไว้แล้ว เพื่อให้ขั้นตอนชำระเงินไม่ต้องค้นฐานข้อมูลซ้ำ
+     * ราคาต่อหน่วยและยอดของทุกรายการมาจากสินค้าที่โหลดไว้ ราคาที่เครื่องขายส่งมาไม่ถูกใช้
+     */
+    public CartCalculationDTO calculateCart(
+            List<CartItemDTO> items, Map<Long, Product> products, Customer customer, Boolean useCoupon) {
         CartCalculationDTO result = new CartCalculationDTO();
 
         try {
             // Validate stock availability
-            boolean stockAvailable = validateStock(items);
+            boolean stockAvailable = validateStock(items, products);
             result.setStockAvailable(stockAvailable);
 
             if (!stockAvailable) {
@@ -43,27 +60,31 @@ public class CartService {
                 return result;
             }
 
-            // Calculate subtotal
-            double subtotal = items.stream()
-                    .mapToDouble(CartItemDTO::getSubtotal)
-                    .sum();
+            // Price every line from the loaded products (client prices are ignored),
+            // then calculate subtotal and the cheapest unit price (satang)
+            List<CartItemDTO> priced = new ArrayList<>(items.size());
+            long subtotal = 0;
+            long cheapestItemPrice = Long.MAX_VALUE;
+            for (CartItemDTO item : items) {
+                Product product = products.get(item.getProductId());
+                CartItemDTO line = new CartItemDTO(item.getProductId(), product.getName(), product.getImageUrl(),
+                        Money.ofBaht(product.getPrice()), item.getQuantity());
+                priced.add(line);
+                subtotal = Math.addExact(subtotal, line.getSubtotal());
+                cheapestItemPrice = Math.min(cheapestItemPrice, line.getPrice());
+            }
             result.setSubtotal(subtotal);
 
             // Calculate discount
-            double discount = 0.0;
+            long discount = 0;
             String discountDescription = "";
 
-            if (customerId != null && useCoupon != null && useCoupon) {
-                Customer customer = customerService.get(customerId);
+            if (useCoupon != null && useCoupon) {
                 if (customer != null) {
                     int points = customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
                     if (points >= LoyaltyService.POINTS_PER_COUPON) {
                         // Use 1 coupon (100 points) for free cheapest item
-                        double cheapestItemPrice = items.stream()
-                                .mapToDouble(CartItemDTO::getPrice)
-                                .min()
-                                .orElse(0.0);
-                        discount = cheapestItemPrice;
+                        discount = priced.isEmpty() ? 0 : cheapestItemPrice;
                         discountDescription = "ใช้คูปองฟรี 1 รายการ";
                     }
                 }
@@ -73,14 +94,14 @@ public class CartService {
             result.setDiscountDescription(discountDescription);
 
             // Calculate total
-            double total = Math.max(0.0, subtotal - discount);
+            long total = Math.max(0, subtotal - discount);
             result.setTotal(total);
 
             // Calculate loyalty points earned (1 point per 10 baht)
             int pointsEarned = loyaltyService.calculateEarnedPoints(total);
             result.setLoyaltyPointsEarned(pointsEarned);
 
-            result.setItems(items);
+            result.setItems(priced);
 
         } catch (Exception e) {
             result.setStockAvailable(false);
@@ -91,16 +112,33 @@ public class CartService {
     }
 
     /**
-     * ตรวจสอบว่าสินค้าในตะกร้าทุกชิ้นมีสต็อกเพียงพอหรือไม่
+     * รวบรวมรหัสสินค้าที่ไม่ซ้ำกันในตะกร้า
+     */
+    public static List<Long> productIds(List<CartItemDTO> items) {
+        if (items == null) {
+            return List.of();
+        }
+        return items.stream()
+                .map(CartItemDTO::getProductId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * ตรวจสอบว่าสินค้าในตะกร้าทุกชิ้นมีสต็อกเพียงพอหรือไม่ (รวมจำนวนของสินค้าเดียวกันที่อยู่หลายบรรทัด)
      */
-    private boolean validateStock(List<CartItemDTO> items) {
+    private boolean validateStock(List<CartItemDTO> items, Map<Long, Product> products) {
+        Map<Long, Integer> requested = new HashMap<>();
         for (CartItemDTO item : items) {
-            try {
-                Product product = productService.get(item.getProductId());
-                if (product == null || product.getStock() < item.getQuantity()) {
-                    return false;
-                }
-            } catch (Exception e) {
+            if (item.getProductId() == null || item.getQuantity() == null) {
+                return false;
+            }
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null || product.getStock() < entry.getValue()) {
                 return false;
             }
         }
@@ -0,0 +1,316 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.CartSessionDTO;
+import com.poscatcafe.model.Customer;
+import com.poscatcafe.model.Money;
+import com.poscatcafe.model.Product;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * เก็บตะกร้าของเครื่องขายไว้ในหน่วยความจำ พร้อมยอดรวม ส่วนลด และแต้มที่ปรับทีละรายการ
+ * การแก้ไขรายการหนึ่งตรวจสต็อกเฉพาะสินค้านั้นจาก snapshot สินค้า (ไม่อ่านฐานข้อมูล) และลูกค้าถูกโหลดเฉพาะเมื่อเปลี่ยนลูกค้า
+ * จำนวนตะกร้าถูกจำกัดด้วย max-carts (ตะกร้าที่ไม่ได้ใช้นานที่สุดถูกทิ้งก่อน) และตะกร้าที่ไม่ได้ใช้เกิน idle-minutes ถูกลบ
+ * สต็อกและแต้มถูกตรวจครบทุกรายการอีกครั้งตอนชำระเงิน
+ */
+@Service
+public class CartSessionService {
+    private final ProductService productService;
+    private final CustomerService customerService;
+    private final LoyaltyService loyaltyService;
+    private final int maxLines;
+    private final long idleMillis;
+    private final ScheduledExecutorService sweeper;
+
+    // เรียงตามการใช้งานล่าสุด ตะกร้าแรกสุดจึงเป็นตะกร้าที่ไม่ได้ใช้นานที่สุด
+    private final Map<String, Cart> carts;
+
+    /**
+     * ตะกร้าหนึ่งใบ: รายการตามรหัสสินค้า ยอดรวมสะสม และจำนวนรายการต่อราคา (หาราคาต่ำสุดสำหรับคูปอง)
+     */
+    private static final class Cart {
+        final String id;
+        final Long ownerId;
+        final Map<Long, CartItemDTO> lines = new LinkedHashMap<>();
+        final TreeMap<Long, Integer> linesByPrice = new TreeMap<>();
+        long subtotal;
+        Long customerId;
+        boolean useCoupon;
+        boolean couponAllowed;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Cart(String id, Long ownerId) {
+            this.id = id;
+            this.ownerId = ownerId;
+        }
+
+        void add(CartItemDTO line) {
+            lines.put(line.getProductId(), line);
+            linesByPrice.merge(line.getPrice(), 1, Integer::sum);
+            subtotal = Math.addExact(subtotal, line.getSubtotal());
+        }
+
+        void remove(CartItemDTO line) {
+            lines.remove(line.getProductId());
+            linesByPrice.computeIfPresent(line.getPrice(), (price, count) -> count > 1 ? count - 1 : null);
+            subtotal -= line.getSubtotal();
+        }
+    }
+
+    /**
+     * สร้างบริการตะกร้าพร้อมเธรดลบตะกร้าที่ไม่ได้ใช้ทุกหนึ่งนาที
+     */
+    public CartSessionService(
+            ProductService productService,
+            CustomerService customerService,
+            LoyaltyService loyaltyService,
+            @Value("${pos.cart.max-carts:1000}") int maxCarts,
+            @Value("${pos.cart.max-lines:100}") int maxLines,
+            @Value("${pos.cart.idle-minutes:30}") long idleMinutes) {
+        this.productService = productService;
+        this.customerService = customerService;
+        this.loyaltyService = loyaltyService;
+        this.maxLines = maxLines;
+        this.idleMillis = idleMinutes * 60_000;
+        this.carts = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cart> eldest) {
+                return size() > maxCarts;
+            }
+        };
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * สร้างตะกร้าใหม่ของผู้ใช้ พร้อมรายการเริ่มต้น (เช่น สร้างใหม่หลังตะกร้าเดิมหมดอายุ) และลูกค้าที่เลือกไว้
+     * รายการที่สต็อกไม่พอจะไม่ถูกเพิ่ม และข้อความแจ้งอยู่ใน errorMessage
+     */
+    public CartSessionDTO create(Long ownerId, List<CartItemDTO> items, Long customerId, Boolean useCoupon) {
+        Cart cart = new Cart(UUID.randomUUID().toString(), ownerId);
+        String error = null;
+        synchronized (cart) {
+            setCustomer(cart, customerId, useCoupon);
+            if (items != null) {
+                for (CartItemDTO item : items) {
+                    if (item.getProductId() != null && item.getQuantity() != null) {
+                        String rejected = setLine(cart, item.getProductId(), item.getQuantity());
+                        error = error != null ? error : rejected;
+                    }
+                }
+            }
+        }
+        synchronized (carts) {
+            carts.put(cart.id, cart);
+        }
+        synchronized (cart) {
+            CartSessionDTO result = summary(cart);
+            result.setItems(copyLines(cart));
+            result.setErrorMessage(error);
+            return result;
+        }
+    }
+
+    /**
+     * ดึงตะกร้าพร้อมรายการทั้งหมด คืน null หากไม่พบ หมดอายุ หรือเป็นของผู้ใช้อื่น
+     */
+    public CartSessionDTO get(String cartId, Long ownerId) {
+        Cart cart = find(cartId, ownerId);
+        if (cart == null) {
+            return null;
+        }
+        synchronized (cart) {
+            CartSessionDTO result = summary(cart);
+            result.setItems(copyLines(cart));
+            return result;
+        }
+    }
+
+    /**
+     * กำหนดจำนวนของสินค้าหนึ่งรายการ (0 คือเอาออก) แล้วปรับยอดรวมเฉพาะส่วนที่เปลี่ยน
+     * หากสต็อกไม่พอหรือไม่พบสินค้า ตะกร้าไม่เปลี่ยนและข้อความแจ้งอยู่ใน errorMessage
+     * คืน null หากไม่พบตะกร้า
+     */
+    public CartSessionDTO updateLine(String cartId, Long ownerId, Long productId, int quantity) {
+        Cart cart = find(cartId, ownerId);
+        if (cart == null) {
+            return null;
+        }
+        synchronized (cart) {
+            String error = setLine(cart, productId, quantity);
+            CartSessionDTO result = summary(cart);
+            CartItemDTO line = cart.lines.get(productId);
+            result.setLine(line != null ? copy(line) : null);
+            result.setErrorMessage(error);
+            return result;
+        }
+    }
+
+    /**
+     * เปลี่ยนลูกค้าหรือการใช้คูปองของตะกร้า (โหลดลูกค้าจากฐานข้อมูลเฉพาะตอนนี้) คืน null หากไม่พบตะกร้า
+     */
+    public CartSessionDTO updateCustomer(String cartId, Long ownerId, Long customerId, Boolean useCoupon) {
+        Cart cart = find(cartId, ownerId);
+        if (cart == null) {
+            return null;
+        }
+        synchronized (cart) {
+            setCustomer(cart, customerId, useCoupon);
+            return summary(cart);
+        }
+    }
+
+    /**
+     * ทิ้งตะกร้า (เช่น หลังชำระเงินหรือล้างตะกร้า) คืน false หากไม่พบ
+     */
+    public boolean discard(String cartId, Long ownerId) {
+        synchronized (carts) {
+            Cart cart = carts.get(cartId);
+            if (cart == null || !owns(cart, ownerId)) {
+                return false;
+            }
+            carts.remove(cartId);
+            return true;
+        }
+    }
+
+    /**
+     * หยุดเธรดลบตะกร้าเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * ลบตะกร้าที่ไม่ได้ใช้เกินเวลาที่กำหนด ไล่จากตะกร้าที่ไม่ได้ใช้นานที่สุดและหยุดเมื่อพบตะกร้าที่ยังใช้อยู่
+     */
+    void sweep() {
+        long expiredBefore = System.currentTimeMillis() - idleMillis;
+        synchronized (carts) {
+            Iterator<Cart> it = carts.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().lastUsed >= expiredBefore) {
+                    break;
+                }
+                it.remove();
+            }
+        }
+    }
+
+    private Cart find(String cartId, Long ownerId) {
+        if (cartId == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (carts) {
+            Cart cart = carts.get(cartId);
+            if (cart == null || !owns(cart, ownerId)) {
+                return null;
+            }
+            if (now - cart.lastUsed > idleMillis) {
+                carts.remove(cartId);
+                return null;
+            }
+            cart.lastUsed = now;
+            return cart;
+        }
+    }
+
+    private static boolean owns(Cart cart, Long ownerId) {
+        return cart.ownerId == null || cart.ownerId.equals(ownerId);
+    }
+
+    /**
+     * ตรวจสต็อกของสินค้ารายการเดียวแล้วแทนที่รายการนั้น คืนข้อความแจ้งเมื่อไม่เปลี่ยนตะกร้า
+     */
+    private String setLine(Cart cart, Long productId, int quantity) {
+        CartItemDTO current = cart.lines.get(productId);
+        if (quantity <= 0) {
+            if (current != null) {
+                cart.remove(current);
+            }
+            return null;
+        }
+        Product product = productService.get(productId);
+        if (product == null) {
+            return "ไม่พบสินค้า";
+        }
+        if (product.getStock() < quantity) {
+            return "สินค้า " + product.getName() + " มีไม่พอ (คงเหลือ " + product.getStock() + ")";
+        }
+        if (current == null && cart.lines.size() >= maxLines) {
+            return "ตะกร้ามีรายการครบ " + maxLines + " รายการแล้ว";
+        }
+        if (current != null) {
+            cart.remove(current);
+        }
+        // ใช้ราคาปัจจุบันของสินค้าเสมอ รายการที่ถูกแก้ไขจึงได้ราคาล่าสุดด้วย
+        cart.add(new CartItemDTO(productId, product.getName(), product.getImageUrl(),
+                Money.ofBaht(product.getPrice()), quantity));
+        return null;
+    }
+
+    private void setCustomer(Cart cart, Long customerId, Boolean useCoupon) {
+        cart.customerId = customerId;
+        cart.useCoupon = Boolean.TRUE.equals(useCoupon);
+        cart.couponAllowed = false;
+        if (customerId != null && cart.useCoupon) {
+            Customer customer = customerService.get(customerId);
+            int points = customer != null && customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
+            cart.couponAllowed = points >= LoyaltyService.POINTS_PER_COUPON;
+        }
+    }
+
+    /**
+     * สร้างยอดของตะกร้าจากค่าที่สะสมไว้ ส่วนลดคูปองคือราคาต่อหน่วยต่ำสุดในตะกร้าเหมือน CartService
+     */
+    private CartSessionDTO summary(Cart cart) {
+        CartSessionDTO result = new CartSessionDTO();
+        result.setCartId(cart.id);
+        result.setStockAvailable(true);
+        result.setSubtotal(cart.subtotal);
+        long discount = 0;
+        String discountDescription = "";
+        if (cart.couponAllowed && !cart.linesByPrice.isEmpty()) {
+            discount = cart.linesByPrice.firstKey();
+            discountDescription = "ใช้คูปองฟรี 1 รายการ";
+        }
+        long total = Math.max(0, cart.subtotal - discount);
+        result.setDiscount(discount);
+        result.setDiscountDescription(discountDescription);
+        result.setTotal(total);
+        result.setLoyaltyPointsEarned(loyaltyService.calculateEarnedPoints(total));
+        return result;
+    }
+
+    private static List<CartItemDTO> copyLines(Cart cart) {
+        List<CartItemDTO> items = new ArrayList<>(cart.lines.size());
+        for (CartItemDTO line : cart.lines.values()) {
+            items.add(copy(line));
+        }
+        return items;
+    }
+
+    private static CartItemDTO copy(CartItemDTO line) {
+        return new CartItemDTO(line.getProductId(), line.getProductName(), line.getImageUrl(),
+                line.getPrice(), line.getQuantity());
+    }
+}
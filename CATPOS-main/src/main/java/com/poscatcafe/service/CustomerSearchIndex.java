@@ -0,0 +1,267 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Customer;
+import com.poscatcafe.repository.CustomerRepository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * ดัชนี trigram ในหน่วยความจำสำหรับค้นหาลูกค้าจากชื่อหรือเบอร์โทร
+ * เก็บเฉพาะรหัส ชื่อ และเบอร์โทร และปรับปรุงตาม CustomerService.save/delete
+ */
+@Service
+public class CustomerSearchIndex {
+    private static final int GRAM = 3;
+    private static final long NAME = 1;
+    private static final long PHONE = 2;
+    private static final Pattern PHONE_QUERY = Pattern.compile("[0-9+\\-\\s()]+");
+
+    private final CustomerRepository repo;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ลูกค้าแต่ละคนได้ช่อง (slot) ตามลำดับที่เพิ่ม รายการ posting จึงเรียงตาม slot เสมอ
+    private Entry[] entries = new Entry[1024];
+    private int size;
+    private int dead;
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private volatile boolean loaded;
+
+    private record Entry(long id, String name, String phone) {}
+
+    /**
+     * รายการ slot แบบขยายได้ ใช้ int เพื่อประหยัดหน่วยความจำเมื่อมีลูกค้าจำนวนมาก
+     */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int length;
+
+        void add(int slot) {
+            if (length == slots.length) {
+                slots = Arrays.copyOf(slots, length * 2);
+            }
+            slots[length++] = slot;
+        }
+    }
+
+    /**
+     * สร้างดัชนีค้นหาลูกค้าพร้อมคลังข้อมูลลูกค้า
+     */
+    public CustomerSearchIndex(CustomerRepository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * สร้างดัชนีล่วงหน้าเมื่อระบบพร้อม เพื่อไม่ให้การค้นหาครั้งแรกช้า
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * ค้นหารหัสลูกค้าที่ชื่อมีคำค้น (ไม่สนตัวพิมพ์) หรือเบอร์โทรมีตัวเลขที่ค้น คืนไม่เกิน limit รายการ
+     */
+    public List<Long> search(String query, int limit) {
+        ensureLoaded();
+        String name = query.trim().toLowerCase(Locale.ROOT);
+        String digits = PHONE_QUERY.matcher(name).matches() ? name.replaceAll("[^0-9]", "") : "";
+
+        List<Long> ids = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            if (name.length() < GRAM || (!digits.isEmpty() && digits.length() < GRAM)) {
+                // คำค้นสั้นเกินกว่าจะใช้ trigram ได้ จึงไล่ตรวจทุกรายการ (ยังเร็วเพราะเป็นสตริงในหน่วยความจำ)
+                for (int slot = 0; slot < size && ids.size() < limit; slot++) {
+                    collect(slot, name, digits, ids);
+                }
+                return ids;
+            }
+
+            // ใช้ posting ที่สั้นที่สุดของชื่อและของเบอร์โทรเป็นผู้สมัคร แล้วรวมตามลำดับ slot
+            Postings byName = shortest(NAME, name);
+            Postings byPhone = digits.isEmpty() ? null : shortest(PHONE, digits);
+            int i = 0;
+            int j = 0;
+            int nameLength = byName == null ? 0 : byName.length;
+            int phoneLength = byPhone == null ? 0 : byPhone.length;
+            while ((i < nameLength || j < phoneLength) && ids.size() < limit) {
+                int a = i < nameLength ? byName.slots[i] : Integer.MAX_VALUE;
+                int b = j < phoneLength ? byPhone.slots[j] : Integer.MAX_VALUE;
+                int slot = Math.min(a, b);
+                if (a == slot) {
+                    i++;
+                }
+                if (b == slot) {
+                    j++;
+                }
+                collect(slot, name, digits, ids);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * เพิ่มหรือปรับปรุงลูกค้าในดัชนี (ข้ามถ้าชื่อและเบอร์โทรไม่เปลี่ยน)
+     */
+    public void put(Customer customer) {
+        if (!loaded || customer.getId() == null) {
+            return;
+        }
+        Entry entry = entryOf(customer.getId(), customer.getName(), customer.getPhone());
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(entry.id());
+            if (slot != null && entry.equals(entries[slot])) {
+                return;
+            }
+            removeSlot(slot);
+            add(entry);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ลบลูกค้าออกจากดัชนี
+     */
+    public void remove(Long id) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeSlot(slotById.remove(id));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * โหลดข้อมูลลูกค้าจากฐานข้อมูลเข้าสู่ดัชนีครั้งแรก
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            for (CustomerRepository.SearchRow row : repo.findAllSearchRows()) {
+                add(entryOf(row.getId(), row.getName(), row.getPhone()));
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void collect(int slot, String name, String digits, List<Long> ids) {
+        Entry entry = entries[slot];
+        if (entry != null
+                && (entry.name().contains(name) || (!digits.isEmpty() && entry.phone().contains(digits)))) {
+            ids.add(entry.id());
+        }
+    }
+
+    /**
+     * คืน posting ที่สั้นที่สุดของ trigram ในคำค้น (null ถ้ามี trigram ใดไม่ปรากฏเลย)
+     */
+    private Postings shortest(long field, String text) {
+        Postings best = null;
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            Postings list = postings.get(gram(field, text, i));
+            if (list == null) {
+                return null;
+            }
+            if (best == null || list.length < best.length) {
+                best = list;
+            }
+        }
+        return best;
+    }
+
+    private void add(Entry entry) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        int slot = size++;
+        entries[slot] = entry;
+        slotById.put(entry.id(), slot);
+        index(NAME, entry.name(), slot);
+        index(PHONE, entry.phone(), slot);
+    }
+
+    private void index(long field, String text, int slot) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            Postings list = postings.computeIfAbsent(gram(field, text, i), k -> new Postings());
+            // ข้าม trigram ที่ซ้ำในข้อความเดียวกัน (slot ล่าสุดคือ slot นี้อยู่แล้ว)
+            if (list.length == 0 || list.slots[list.length - 1] != slot) {
+                list.add(slot);
+            }
+        }
+    }
+
+    /**
+     * ทำเครื่องหมายว่า slot ว่าง ส่วน posting เก่าจะถูกล้างตอน compact
+     */
+    private void removeSlot(Integer slot) {
+        if (slot != null && entries[slot] != null) {
+            entries[slot] = null;
+            dead++;
+        }
+    }
+
+    /**
+     * สร้างดัชนีใหม่จากรายการที่ยังอยู่เมื่อ slot ที่ถูกลบมีมากเกินครึ่ง
+     */
+    private void compactIfNeeded() {
+        if (dead < 1024 || dead * 2 < size) {
+            return;
+        }
+        Entry[] live = Arrays.copyOf(entries, size);
+        entries = new Entry[Math.max(1024, size - dead)];
+        size = 0;
+        dead = 0;
+        slotById.clear();
+        postings.clear();
+        for (Entry entry : live) {
+            if (entry != null) {
+                add(entry);
+            }
+        }
+    }
+
+    /**
+     * รวมอักขระสามตัว (ตัวละ 16 บิต) กับชนิดฟิลด์เป็นคีย์ long เพื่อไม่ต้องสร้างสตริงย่อย
+     */
+    private static long gram(long field, String text, int start) {
+        return field << 48
+                | (long) text.charAt(start) << 32
+                | (long) text.charAt(start + 1) << 16
+                | text.charAt(start + 2);
+    }
+
+    private static Entry entryOf(Long id, String name, String phone) {
+        return new Entry(
+                id,
+                name == null ? "" : name.toLowerCase(Locale.ROOT),
+                phone == null ? "" : phone.replaceAll("[^0-9]", ""));
+    }
+}
@@ -1,23 +1,63 @@
 package com.poscatcafe.service;
 
 import com.poscatcafe.model.Customer;
+import com.poscatcafe.model.LoyaltyLedgerEntry;
 import com.poscatcafe.repository.CustomerRepository;
+import com.poscatcafe.repository.LoyaltyLedgerRepository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * ให้บริการจัดการข้อมูลลูกค้า
+ * เก็บเวอร์ชันของข้อมูลลูกค้าในหน่วยความจำ เพิ่มขึ้นหลัง commit ทุกครั้งที่ลูกค้าหรือแต้มเปลี่ยน (ใช้ทำ ETag)
  */
 @Service
 public class CustomerService {
     private final CustomerRepository repo;
+    private final CustomerSearchIndex searchIndex;
+    private final LoyaltyLedgerRepository ledgerRepo;
+    private final AtomicLong version = new AtomicLong();
 
     /**
-     * สร้างบริการลูกค้าพร้อมคลังข้อมูล
+     * สร้างบริการลูกค้าพร้อมคลังข้อมูล ดัชนีค้นหา และสมุดบัญชีแต้ม
      */
-    public CustomerService(CustomerRepository repo) {
+    public CustomerService(
+            CustomerRepository repo, CustomerSearchIndex searchIndex, LoyaltyLedgerRepository ledgerRepo) {
         this.repo = repo;
+        this.searchIndex = searchIndex;
+        this.ledgerRepo = ledgerRepo;
+    }
+
+    /**
+     * คืนเวอร์ชันปัจจุบันของข้อมูลลูกค้า
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * แจ้งว่าข้อมูลลูกค้าเปลี่ยน เวอร์ชันจะเพิ่มเมื่อ transaction ปัจจุบัน commit (หรือทันทีถ้าไม่มี transaction)
+     * เพิ่มหลัง commit เพื่อไม่ให้ผู้อ่านได้ข้อมูลเก่าพร้อมเวอร์ชันใหม่
+     */
+    public void changed() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+        });
     }
 
     /**
@@ -34,11 +74,42 @@ public class CustomerService {
         return repo.findById(id).orElse(null);
     }
 
+    /**
+     * ดึงข้อมูลลูกค้าหลายรายตามรหัส โดยคงลำดับตามรายการรหัสที่ส่งมา
+     */
+    public List<Customer> getAll(List<Long> ids) {
+        Map<Long, Customer> byId = new HashMap<>();
+        for (Customer customer : repo.findAllById(ids)) {
+            byId.put(customer.getId(), customer);
+        }
+        List<Customer> customers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Customer customer = byId.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            }
+        }
+        return customers;
+    }
+
     /**
      * บันทึกหรืออัปเดตข้อมูลลูกค้า
+     * แต้มสะสมจะถูกกำหนดได้เฉพาะตอนสร้างลูกค้าใหม่ (บันทึกเป็นรายการยอดยกมาในสมุดบัญชีแต้ม)
      */
+    @Transactional
     public Customer save(Customer customer) {
-        return repo.save(customer);
+        boolean isNew = customer.getId() == null;
+        if (!isNew) {
+            // คอลัมน์แต้มไม่ถูกเขียนทับอยู่แล้ว แต่ตั้งค่าให้ตรงฐานข้อมูลเพื่อให้ผลลัพธ์ที่คืนไปถูกต้อง
+            customer.setLoyaltyPoints(repo.findPoints(customer.getId()));
+        }
+        Customer saved = repo.save(customer);
+        if (isNew && saved.getLoyaltyPoints() != null && saved.getLoyaltyPoints() != 0) {
+            ledgerRepo.save(new LoyaltyLedgerEntry(saved.getId(), saved.getLoyaltyPoints(), LoyaltyLedgerEntry.ADJUST, null));
+        }
+        searchIndex.put(saved);
+        changed();
+        return saved;
     }
 
     /**
@@ -46,5 +117,7 @@ public class CustomerService {
      */
     public void delete(Long id) {
         repo.deleteById(id);
+        searchIndex.remove(id);
+        changed();
     }
 }
@@ -3,7 +3,6 @@ package com.poscatcafe.service;
 import com.poscatcafe.model.Employee;
 import com.poscatcafe.repository.EmployeeRepository;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
@@ -11,10 +10,13 @@ import java.util.Optional;
 @Service
 public class EmployeeService {
     private final EmployeeRepository employeeRepository;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final AuthService authService;
+    private final PasswordHasher passwordHasher;
 
-    public EmployeeService(EmployeeRepository employeeRepository) {
+    public EmployeeService(EmployeeRepository employeeRepository, AuthService authService, PasswordHasher passwordHasher) {
         this.employeeRepository = employeeRepository;
+        this.authService = authService;
+        this.passwordHasher = passwordHasher;
     }
 
     public List<Employee> getAllEmployees() {
@@ -27,7 +29,7 @@ public class EmployeeService {
 
     public Employee createEmployee(Employee employee) {
         // เข้ารหัสรหัสผ่านก่อนบันทึก
-        employee.setPassword(passwordEncoder.encode(employee.getPassword()));
+        employee.setPassword(passwordHasher.encode(employee.getPassword()));
         return employeeRepository.save(employee);
     }
 
@@ -38,10 +40,13 @@ public class EmployeeService {
                     employee.setUsername(updatedEmployee.getUsername());
                     // ถ้ามีการเปลี่ยนรหัสผ่าน ให้เข้ารหัสใหม่
                     if (updatedEmployee.getPassword() != null && !updatedEmployee.getPassword().isEmpty()) {
-                        employee.setPassword(passwordEncoder.encode(updatedEmployee.getPassword()));
+                        employee.setPassword(passwordHasher.encode(updatedEmployee.getPassword()));
                     }
                     employee.setRole(updatedEmployee.getRole());
-                    return employeeRepository.save(employee);
+                    Employee saved = employeeRepository.save(employee);
+                    // ให้สิทธิ์/ชื่อใหม่มีผลกับเซสชันที่เปิดอยู่ทันที
+                    authService.evictPrincipal(id);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -49,6 +54,7 @@ public class EmployeeService {
     public boolean deleteEmployee(Long id) {
         if (employeeRepository.existsById(id)) {
             employeeRepository.deleteById(id);
+            authService.evictPrincipal(id);
             return true;
         }
         return false;
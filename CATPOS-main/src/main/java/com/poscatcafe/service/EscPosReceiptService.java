@@ -0,0 +1,318 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Money;
+import com.poscatcafe.model.Order;
+import com.poscatcafe.model.OrderItem;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * สร้างใบเสร็จเป็นคำสั่ง ESC/POS สำหรับเครื่องพิมพ์ความร้อน 80 มม. ส่งตรงให้เครื่องพิมพ์ได้โดยไม่ต้องผ่านเบราว์เซอร์
+ * QR พร้อมเพย์ใช้คำสั่ง QR ของเครื่องพิมพ์เอง (GS ( k) แทนการส่งภาพ
+ * ข้อความแปลงเป็นรหัสอักขระแบบไบต์เดียวของเครื่องพิมพ์ (ค่าเริ่มต้น TIS-620) อักขระที่แปลงไม่ได้ เช่น อีโมจิ จะถูกข้าม
+ */
+@Service
+public class EscPosReceiptService {
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final int QR_MODULE_SIZE = 6;
+    private static final int PRINTER_TIMEOUT_MS = 3000;
+
+    private final StoreSettingService storeSettingService;
+    private final QrCodeService qrCodeService;
+    private final int columns;
+    private final int codePage;
+    private final String printer;
+
+    // รหัสอักขระ UTF-16 -> ไบต์ของเครื่องพิมพ์ (-1 = แปลงไม่ได้) สร้างครั้งเดียวเพื่อไม่ต้องเรียก CharsetEncoder ต่ออักขระ
+    private final short[] charTable = new short[Character.MAX_VALUE + 1];
+
+    /**
+     * สร้างบริการพิมพ์ใบเสร็จ ESC/POS ตามความกว้างกระดาษ รหัสอักขระ และเครื่องพิมพ์ที่ตั้งค่าไว้
+     */
+    public EscPosReceiptService(
+            StoreSettingService storeSettingService,
+            QrCodeService qrCodeService,
+            @Value("${pos.receipt.escpos.columns:48}") int columns,
+            @Value("${pos.receipt.escpos.charset:TIS-620}") String charset,
+            @Value("${pos.receipt.escpos.code-page:21}") int codePage,
+            @Value("${pos.receipt.printer:}") String printer) {
+        this.storeSettingService = storeSettingService;
+        this.qrCodeService = qrCodeService;
+        this.columns = Math.max(24, columns);
+        this.codePage = codePage;
+        this.printer = printer;
+        buildCharTable(Charset.forName(charset));
+    }
+
+    /**
+     * เขียนใบเสร็จของออเดอร์เป็นคำสั่ง ESC/POS ลง stream ที่ส่งมา (ออเดอร์ต้องโหลดรายการสินค้าไว้แล้ว)
+     */
+    public void write(Order order, OutputStream target) throws IOException {
+        Receipt out = new Receipt(target instanceof BufferedOutputStream ? target : new BufferedOutputStream(target, 2048));
+        StoreSettingService.Snapshot settings = storeSettingService.snapshot();
+        StringBuilder line = new StringBuilder(columns * 2);
+
+        out.command(ESC, '@');
+        out.command(ESC, 't', codePage);
+
+        out.command(ESC, 'a', 1);
+        out.command(GS, '!', 0x11);
+        out.text(settings.shopName() != null ? settings.shopName() : "Cat Café POS").newline();
+        out.command(GS, '!', 0);
+        if (settings.address() != null) {
+            out.text(settings.address()).newline();
+        }
+        if (settings.phone() != null) {
+            out.text("โทร: ").text(settings.phone()).newline();
+        }
+        if (settings.taxId() != null) {
+            out.text("เลขประจำตัวผู้เสียภาษี: ").text(settings.taxId()).newline();
+        }
+        out.newline();
+        out.command(ESC, 'E', 1);
+        out.text("ใบเสร็จรับเงิน").newline();
+        out.command(ESC, 'E', 0);
+
+        out.command(ESC, 'a', 0);
+        line.setLength(0);
+        if (order.getReceiptNo() != null) {
+            line.append(order.getReceiptNo());
+        } else {
+            line.append('R').append(String.format("%06d", order.getId()));
+        }
+        out.text("เลขที่: ").text(line).newline();
+        line.setLength(0);
+        ReceiptTemplate.appendDate(line, order.getOrderDate());
+        out.text("วันที่: ").text(line).newline();
+        if (order.getCustomerName() != null && !order.getCustomerName().isEmpty()) {
+            out.text("ลูกค้า: ").text(order.getCustomerName()).newline();
+        }
+        out.rule();
+
+        long subtotal = 0;
+        for (OrderItem item : order.getItems()) {
+            out.text(item.getProductName()).newline();
+            line.setLength(0);
+            line.append("  ").append(item.getQuantity()).append(" x ");
+            Money.append(line, item.getPrice());
+            out.columns(line, "", item.getSubtotal());
+            subtotal += item.getSubtotal();
+        }
+        out.rule();
+
+        out.columns("รวมย่อย", "฿", subtotal);
+        if (order.getDiscountAmount() > 0) {
+            out.columns("ส่วนลด", "-฿", order.getDiscountAmount());
+        }
+        out.command(ESC, 'E', 1);
+        out.columns("รวมทั้งสิ้น", "฿", order.getTotalAmount());
+        out.command(ESC, 'E', 0);
+
+        String promptPayId = settings.promptpayId();
+        if ("qr".equals(order.getPaymentMethod()) && promptPayId != null && !promptPayId.isEmpty()) {
+            out.newline();
+            out.command(ESC, 'a', 1);
+            out.qrCode(qrCodeService.promptPayPayload(promptPayId, order.getTotalAmount()));
+            out.text("พร้อมเพย์").newline();
+        }
+
+        out.command(ESC, 'a', 1);
+        out.newline();
+        out.text("*** ขอบคุณที่ใช้บริการ ***").newline();
+        out.command(ESC, 'd', 3);
+        // ตัดกระดาษแบบเหลือขอบ หลังป้อนกระดาษให้พ้นหัวพิมพ์
+        out.command(GS, 'V', 66, 0);
+        out.flush();
+    }
+
+    /**
+     * ส่งใบเสร็จไปยังเครื่องพิมพ์ที่ตั้งค่าไว้ใน pos.receipt.printer
+     * รองรับ tcp://host:port (เครื่องพิมพ์เครือข่าย โดยทั่วไปพอร์ต 9100) หรือพาธไฟล์/อุปกรณ์ เช่น /dev/usb/lp0
+     */
+    public void print(Order order) throws IOException {
+        if (printer == null || printer.isBlank()) {
+            throw new IllegalStateException("ยังไม่ได้ตั้งค่าเครื่องพิมพ์ใบเสร็จ (pos.receipt.printer)");
+        }
+        if (printer.startsWith("tcp://")) {
+            URI uri = URI.create(printer);
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 9100), PRINTER_TIMEOUT_MS);
+                socket.setSoTimeout(PRINTER_TIMEOUT_MS);
+                write(order, socket.getOutputStream());
+            }
+        } else {
+            try (OutputStream file = Files.newOutputStream(
+                    Path.of(printer), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                write(order, file);
+            }
+        }
+    }
+
+    /**
+     * สร้างตารางแปลงอักขระสำหรับรหัสอักขระแบบไบต์เดียว
+     */
+    private void buildCharTable(Charset charset) {
+        CharsetEncoder encoder = charset.newEncoder();
+        if (encoder.maxBytesPerChar() != 1.0f) {
+            throw new IllegalArgumentException("รหัสอักขระของเครื่องพิมพ์ต้องเป็นแบบไบต์เดียว: " + charset);
+        }
+        Arrays.fill(charTable, (short) -1);
+        char[] one = new char[1];
+        for (int c = 0x20; c <= Character.MAX_VALUE; c++) {
+            if (Character.isSurrogate((char) c) || !encoder.canEncode((char) c)) {
+                continue;
+            }
+            one[0] = (char) c;
+            try {
+                ByteBuffer encoded = encoder.reset().encode(CharBuffer.wrap(one));
+                charTable[c] = (short) (encoded.get(0) & 0xFF);
+            } catch (CharacterCodingException e) {
+                // ข้ามอักขระที่แปลงไม่ได้
+            }
+        }
+        // ตัวอักษรที่มีเครื่องหมายซึ่งเครื่องพิมพ์ไม่มี ให้พิมพ์เป็นตัวอักษรพื้นฐานแทนการหายไป (เช่น é -> e)
+        for (int c = 0x80; c <= Character.MAX_VALUE; c++) {
+            if (charTable[c] < 0 && !Character.isSurrogate((char) c)) {
+                String base = Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFD);
+                if (base.length() > 1 && base.charAt(0) < 0x80 && charTable[base.charAt(0)] >= 0) {
+                    charTable[c] = charTable[base.charAt(0)];
+                }
+            }
+        }
+    }
+
+    /**
+     * สระและวรรณยุกต์ไทยที่พิมพ์ซ้อนบน/ล่างตัวอักษร ไม่กินความกว้างบรรทัด
+     */
+    private static boolean isCombining(char c) {
+        return c == '\u0E31' || (c >= '\u0E34' && c <= '\u0E3A') || (c >= '\u0E47' && c <= '\u0E4E');
+    }
+
+    /**
+     * ตัวเขียนคำสั่งและข้อความของใบเสร็จหนึ่งใบ
+     */
+    private final class Receipt {
+        private final OutputStream out;
+        private final StringBuilder money = new StringBuilder(16);
+
+        Receipt(OutputStream out) {
+            this.out = out;
+        }
+
+        void command(byte prefix, char code, int... args) throws IOException {
+            out.write(prefix);
+            out.write(code);
+            for (int arg : args) {
+                out.write(arg);
+            }
+        }
+
+        Receipt text(CharSequence text) throws IOException {
+            if (text == null) {
+                return this;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                short b = charTable[text.charAt(i)];
+                if (b >= 0) {
+                    out.write(b);
+                }
+            }
+            return this;
+        }
+
+        Receipt newline() throws IOException {
+            out.write('\n');
+            return this;
+        }
+
+        /**
+         * ความกว้างที่พิมพ์จริงของข้อความ (ไม่นับอักขระที่ถูกข้ามและสระ/วรรณยุกต์ที่ซ้อน)
+         */
+        int width(CharSequence text) {
+            int width = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (charTable[c] >= 0 && !isCombining(c)) {
+                    width++;
+                }
+            }
+            return width;
+        }
+
+        /**
+         * พิมพ์ข้อความชิดซ้ายและจำนวนเงิน (ต่อจาก prefix เช่น ฿) ชิดขวาในบรรทัดเดียว ขึ้นบรรทัดใหม่ถ้าข้อความยาวเกิน
+         */
+        void columns(CharSequence label, String prefix, long amount) throws IOException {
+            money.setLength(0);
+            money.append(prefix);
+            Money.append(money, amount);
+            int gap = columns - width(label) - money.length();
+            text(label);
+            if (gap < 1) {
+                newline();
+                gap = columns - money.length();
+            }
+            for (int i = 0; i < gap; i++) {
+                out.write(' ');
+            }
+            text(money).newline();
+        }
+
+        void rule() throws IOException {
+            for (int i = 0; i < columns; i++) {
+                out.write('-');
+            }
+            newline();
+        }
+
+        /**
+         * พิมพ์ QR ด้วยคำสั่งของเครื่องพิมพ์: เลือกโมเดล 2, ขนาดโมดูล, ระดับแก้ไขข้อผิดพลาด M, เก็บข้อมูล แล้วสั่งพิมพ์
+         */
+        void qrCode(String payload) throws IOException {
+            byte[] data = payload.getBytes(StandardCharsets.US_ASCII);
+            qrFunction(new byte[] {'1', 'A', '2', 0});
+            qrFunction(new byte[] {'1', 'C', QR_MODULE_SIZE});
+            qrFunction(new byte[] {'1', 'E', '1'});
+            byte[] store = new byte[data.length + 3];
+            store[0] = '1';
+            store[1] = 'P';
+            store[2] = '0';
+            System.arraycopy(data, 0, store, 3, data.length);
+            qrFunction(store);
+            qrFunction(new byte[] {'1', 'Q', '0'});
+            newline();
+        }
+
+        private void qrFunction(byte[] body) throws IOException {
+            out.write(GS);
+            out.write('(');
+            out.write('k');
+            out.write(body.length & 0xFF);
+            out.write((body.length >> 8) & 0xFF);
+            out.write(body);
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -1,25 +1,105 @@
 package com.poscatcafe.service;
 
+import com.poscatcafe.model.ProductImages;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
 /**
  * จัดการการจัดเก็บไฟล์ที่อัปโหลด เช่น รูปภาพสินค้า
+ * รูปที่อัปโหลดถูกตรวจชนิดจาก magic bytes และตั้งชื่อตาม SHA-256 ของเนื้อไฟล์ (รูปเดียวกันอัปโหลดซ้ำจะใช้ไฟล์เดิม)
+ * แล้วสร้างรูปย่อขนาดตารางสินค้า (grid) และขนาดรายละเอียด (detail) เป็น JPEG ในเธรดพื้นหลัง
+ * ตั้งชื่อตามรูปต้นฉบับ เช่น abc.png -> abc_grid.jpg, abc_detail.jpg
+ * ไฟล์ในโฟลเดอร์สินค้าไม่ถูกเขียนทับหลังสร้างเสร็จ จึงเสิร์ฟแบบ cache ได้ถาวร
  */
 @Service
 public class FileStorageService {
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+
+    private static final String PARTIAL_EXT = ".part";
+    private static final float JPEG_QUALITY = 0.85f;
+    // ชื่อไฟล์ที่เสิร์ฟได้: ชื่อจากแฮช (หรือ UUID ของรูปที่อัปโหลดก่อนหน้านี้) ตามด้วยนามสกุลรูปภาพ
+    // รูปที่อัปโหลดก่อนหน้านี้ใช้นามสกุลตามชื่อไฟล์ของผู้ใช้ (.jpeg, .JPG, .PNG, ...) จึงไม่สนตัวพิมพ์ของนามสกุล
+    private static final Pattern SERVABLE_NAME =
+            Pattern.compile("[0-9a-f]{32,64}(_[a-z]+)?\\.(?i:jpe?g|png|gif|webp)");
 
     private final Path uploadRoot;
     private final Path productImageDir;
+    private final int gridSize;
+    private final int detailSize;
+    private final ExecutorService thumbnailer;
+
+    /**
+     * ชนิดรูปภาพที่รับอัปโหลด ระบุจากไบต์แรกของไฟล์ ไม่เชื่อชื่อไฟล์หรือ Content-Type ที่ไคลเอนต์ส่งมา
+     */
+    enum ImageType {
+        JPEG(".jpg"), PNG(".png"), GIF(".gif"), WEBP(".webp");
+
+        final String ext;
+
+        ImageType(String ext) {
+            this.ext = ext;
+        }
+
+        static ImageType detect(byte[] h, int n) {
+            if (n >= 3 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xFF) == 0xD8 && (h[2] & 0xFF) == 0xFF) {
+                return JPEG;
+            }
+            if (n >= 8 && (h[0] & 0xFF) == 0x89 && h[1] == 'P' && h[2] == 'N' && h[3] == 'G'
+                    && h[4] == 0x0D && h[5] == 0x0A && h[6] == 0x1A && h[7] == 0x0A) {
+                return PNG;
+            }
+            if (n >= 6 && h[0] == 'G' && h[1] == 'I' && h[2] == 'F' && h[3] == '8'
+                    && (h[4] == '7' || h[4] == '9') && h[5] == 'a') {
+                return GIF;
+            }
+            if (n >= 12 && h[0] == 'R' && h[1] == 'I' && h[2] == 'F' && h[3] == 'F'
+                    && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') {
+                return WEBP;
+            }
+            return null;
+        }
+    }
 
     /**
-     * เตรียมโครงสร้างโฟลเดอร์สำหรับเก็บไฟล์เมื่อบริการถูกสร้างขึ้น
+     * เตรียมโครงสร้างโฟลเดอร์สำหรับเก็บไฟล์และเธรดสร้างรูปย่อเมื่อบริการถูกสร้างขึ้น
      */
-    public FileStorageService() {
+    public FileStorageService(
+            @Value("${pos.images.grid-size:240}") int gridSize,
+            @Value("${pos.images.detail-size:800}") int detailSize) {
         try {
             this.uploadRoot = Paths.get("uploads").toAbsolutePath().normalize();
             this.productImageDir = uploadRoot.resolve("products");
@@ -27,31 +107,227 @@ public class FileStorageService {
         } catch (IOException e) {
             throw new RuntimeException("ไม่สามารถเตรียมโฟลเดอร์สำหรับเก็บไฟล์ได้", e);
         }
+        this.gridSize = gridSize;
+        this.detailSize = detailSize;
+        this.thumbnailer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "image-thumbnails");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
     }
 
     /**
      * บันทึกรูปภาพสินค้าและคืน URL สำหรับเข้าถึงไฟล์
+     * ไฟล์ที่ servlet container เก็บไว้ชั่วคราวถูกย้ายมาที่โฟลเดอร์สินค้าโดยตรง (ไม่อ่านทั้งไฟล์เข้าหน่วยความจำ)
+     * และสั่งสร้างรูปย่อในเธรดพื้นหลัง
      */
     public String storeProductImage(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("ไฟล์ว่าง หรือไม่ได้เลือกไฟล์");
         }
 
-        String originalName = file.getOriginalFilename();
-        String ext = "";
-        if (originalName != null && originalName.contains(".")) {
-            ext = originalName.substring(originalName.lastIndexOf('.'));
+        ImageType type;
+        try (InputStream in = file.getInputStream()) {
+            byte[] header = new byte[12];
+            type = ImageType.detect(header, in.readNBytes(header, 0, header.length));
+        } catch (IOException e) {
+            throw new RuntimeException("ไม่สามารถอัปโหลดไฟล์ได้", e);
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("รองรับเฉพาะไฟล์รูปภาพ JPEG, PNG, GIF หรือ WebP");
         }
 
-        String filename = UUID.randomUUID().toString().replaceAll("-", "") + ext;
-        Path targetPath = productImageDir.resolve(filename);
-
+        // เก็บลงไฟล์ชั่วคราวก่อน แล้วจึงรู้ชื่อจริงจากแฮชของเนื้อไฟล์
+        Path partial = productImageDir.resolve(UUID.randomUUID().toString().replaceAll("-", "") + PARTIAL_EXT);
+        Path targetPath;
         try {
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+            // transferTo(File) ให้ container ย้ายไฟล์ชั่วคราวแทนการคัดลอกเมื่อทำได้
+            file.transferTo(partial.toFile());
+            targetPath = productImageDir.resolve(sha256Hex(partial) + type.ext);
+            if (Files.exists(targetPath)) {
+                // รูปนี้เคยอัปโหลดแล้ว ใช้ไฟล์และรูปย่อเดิม
+                Files.delete(partial);
+            } else {
+                try {
+                    Files.move(partial, targetPath, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // อัปโหลดรูปเดียวกันพร้อมกันสองคำขอ อีกคำขอย้ายไฟล์ไปก่อนแล้ว
+                    Files.delete(partial);
+                }
+            }
         } catch (IOException e) {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // ไม่เป็นไร
+            }
             throw new RuntimeException("ไม่สามารถอัปโหลดไฟล์ได้", e);
         }
 
-        return "/uploads/products/" + filename;
+        if (!Files.exists(thumbnailPath(targetPath, ProductImages.GRID))) {
+            scheduleThumbnails(targetPath);
+        }
+        return ProductImages.URL_PREFIX + targetPath.getFileName();
+    }
+
+    /**
+     * คืนไฟล์รูปสินค้า (ต้นฉบับหรือรูปย่อ) ตามชื่อไฟล์ใน URL หรือว่างถ้าชื่อไม่ถูกรูปแบบหรือยังไม่มีไฟล์
+     */
+    public Optional<Path> findProductImage(String filename) {
+        if (filename == null || !SERVABLE_NAME.matcher(filename).matches()) {
+            return Optional.empty();
+        }
+        Path path = productImageDir.resolve(filename);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * สร้างรูปย่อของรูปสินค้าเดิมที่ยังไม่มีรูปย่อ เมื่อระบบพร้อมใช้งาน
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillThumbnails() {
+        try (Stream<Path> files = Files.list(productImageDir)) {
+            files.filter(this::isOriginal)
+                    .filter(original -> !Files.exists(thumbnailPath(original, ProductImages.GRID)))
+                    .forEach(this::scheduleThumbnails);
+        } catch (IOException e) {
+            log.warn("Could not scan product images for missing thumbnails", e);
+        }
+    }
+
+    /**
+     * หยุดเธรดสร้างรูปย่อเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        thumbnailer.shutdownNow();
+    }
+
+    private boolean isOriginal(Path path) {
+        String name = path.getFileName().toString();
+        return !name.endsWith(PARTIAL_EXT)
+                && !name.endsWith("_" + ProductImages.GRID + ProductImages.THUMBNAIL_EXT)
+                && !name.endsWith("_" + ProductImages.DETAIL + ProductImages.THUMBNAIL_EXT)
+                && Files.isRegularFile(path);
+    }
+
+    private Path thumbnailPath(Path original, String size) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(base + "_" + size + ProductImages.THUMBNAIL_EXT);
+    }
+
+    /**
+     * คำนวณ SHA-256 ของไฟล์แบบอ่านทีละส่วน
+     */
+    private static String sha256Hex(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void scheduleThumbnails(Path original) {
+        try {
+            thumbnailer.execute(() -> generateThumbnails(original));
+        } catch (RejectedExecutionException e) {
+            // ระบบกำลังปิด รูปย่อจะถูกสร้างตอนเริ่มระบบครั้งถัดไป
+        }
+    }
+
+    /**
+     * ถอดรหัสรูปต้นฉบับแบบลดความละเอียดตั้งแต่ตอนอ่าน (ไม่ต้องโหลดภาพเต็มขนาดจากกล้องมือถือ) แล้วเขียนรูปย่อทั้งสองขนาด
+     * รูปที่ Java ถอดรหัสไม่ได้ (เช่น WebP) จะไม่มีรูปย่อ หน้าจอจะใช้รูปต้นฉบับแทน
+     */
+    private void generateThumbnails(Path original) {
+        try {
+            BufferedImage source = readDownsampled(original, detailSize);
+            if (source == null) {
+                return;
+            }
+            writeJpeg(resize(source, detailSize), thumbnailPath(original, ProductImages.DETAIL));
+            writeJpeg(resize(source, gridSize), thumbnailPath(original, ProductImages.GRID));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not create thumbnails of {}", original.getFileName(), e);
+        }
+    }
+
+    private static BufferedImage readDownsampled(Path path, int targetSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // อ่านทุก ๆ n พิกเซล โดยยังเหลือความละเอียดอย่างน้อย 2 เท่าของขนาดที่ต้องการเพื่อให้ย่อต่อได้คมชัด
+                int step = Math.max(1, longest / (targetSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * ย่อภาพให้ด้านยาวไม่เกินขนาดที่กำหนด (ไม่ขยายภาพเล็ก) โดยย่อทีละครึ่งเพื่อคุณภาพใกล้เคียงการย่อแบบละเอียด
+     * พื้นโปร่งใสถูกเติมเป็นสีขาวเพราะ JPEG ไม่มีช่องโปร่งใส
+     */
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = source;
+        int w = width;
+        int h = height;
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + PARTIAL_EXT);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(partial.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
     }
 }
@@ -0,0 +1,120 @@
+package com.poscatcafe.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * เก็บเซสชันในหน่วยความจำ การตรวจสอบโทเคนเพียงอ่าน map และเขียนเวลาใช้งานล่าสุด (ไม่สร้างอ็อบเจกต์ใหม่)
+ * เซสชันที่หมดอายุถูกล้างจากคิวเรียงตามเวลาหมดอายุ จึงไม่ต้องไล่ตรวจทุกเซสชัน
+ */
+@Service
+@ConditionalOnProperty(name = "pos.session.store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySessionStore implements SessionStore {
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final PriorityQueue<Expiry> expiries = new PriorityQueue<>();
+    private final ScheduledExecutorService sweeper;
+    private final long timeoutMillis;
+
+    /**
+     * เซสชันหนึ่งรายการ เวลาใช้งานล่าสุดเปลี่ยนได้เพื่อต่ออายุโดยไม่ต้องสร้างอ็อบเจกต์ใหม่
+     */
+    private static final class Session {
+        final Long employeeId;
+        volatile long lastAccessed;
+
+        Session(Long employeeId, long now) {
+            this.employeeId = employeeId;
+            this.lastAccessed = now;
+        }
+    }
+
+    /**
+     * กำหนดเวลาตรวจหมดอายุของโทเคน (อาจเก่ากว่าความจริงถ้าเซสชันถูกต่ออายุไปแล้ว)
+     */
+    private record Expiry(long deadline, String token) implements Comparable<Expiry> {
+        @Override
+        public int compareTo(Expiry other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+
+    /**
+     * สร้างที่เก็บเซสชันในหน่วยความจำพร้อมเธรดล้างเซสชันหมดอายุทุกนาที
+     */
+    public InMemorySessionStore(@Value("${pos.session.timeout-minutes:480}") long timeoutMinutes) {
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void create(String token, Long employeeId) {
+        long now = System.currentTimeMillis();
+        sessions.put(token, new Session(employeeId, now));
+        synchronized (expiries) {
+            expiries.add(new Expiry(now + timeoutMillis, token));
+        }
+    }
+
+    @Override
+    public Long touch(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccessed > timeoutMillis) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccessed = now;
+        return session.employeeId;
+    }
+
+    @Override
+    public void remove(String token) {
+        sessions.remove(token);
+    }
+
+    /**
+     * ล้างเซสชันที่ครบกำหนดตามลำดับเวลาในคิว เซสชันที่ถูกต่ออายุแล้วจะถูกใส่คิวใหม่ตามเวลาหมดอายุจริง
+     */
+    void sweep() {
+        long now = System.currentTimeMillis();
+        synchronized (expiries) {
+            while (!expiries.isEmpty() && expiries.peek().deadline() <= now) {
+                String token = expiries.poll().token();
+                Session session = sessions.get(token);
+                if (session == null) {
+                    continue;
+                }
+                long deadline = session.lastAccessed + timeoutMillis;
+                if (deadline <= now) {
+                    sessions.remove(token, session);
+                } else {
+                    expiries.add(new Expiry(deadline, token));
+                }
+            }
+        }
+    }
+
+    /**
+     * หยุดเธรดล้างเซสชันเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
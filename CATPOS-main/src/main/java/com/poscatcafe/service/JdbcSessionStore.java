@@ -0,0 +1,151 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.AuthSession;
+import com.poscatcafe.repository.AuthSessionRepository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * เก็บเซสชันในตาราง auth_session ให้หลายเครื่องใช้ร่วมกันและไม่หายเมื่อรีสตาร์ต
+ * การตรวจสอบและต่ออายุใช้ฐานข้อมูลไม่เกินนาทีละครั้งต่อเซสชัน และเซสชันหมดอายุถูกลบด้วย DELETE ตามดัชนี last_accessed
+ */
+@Service
+@ConditionalOnProperty(name = "pos.session.store", havingValue = "jdbc")
+public class JdbcSessionStore implements SessionStore {
+    private static final Logger log = LoggerFactory.getLogger(JdbcSessionStore.class);
+    private static final long REFRESH_INTERVAL_SECONDS = 60;
+    private static final int CACHE_SIZE = 4096;
+
+    private final AuthSessionRepository repo;
+    private final TransactionTemplate transaction;
+    private final ScheduledExecutorService sweeper;
+    private final long timeoutMinutes;
+
+    // โทเคนที่ตรวจกับฐานข้อมูลแล้วภายในหนึ่งนาที ไม่ต้องอ่านตารางซ้ำ
+    // (การออกจากระบบที่อีกเครื่องจึงมีผลกับเครื่องนี้ภายในไม่เกินหนึ่งนาที)
+    private final Map<String, Verified> verified = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private record Verified(Long employeeId, long verifiedAt) {}
+
+    /**
+     * สร้างที่เก็บเซสชันในฐานข้อมูลพร้อมเธรดลบเซสชันหมดอายุทุก 10 นาที
+     */
+    public JdbcSessionStore(
+            AuthSessionRepository repo,
+            PlatformTransactionManager transactionManager,
+            @Value("${pos.session.timeout-minutes:480}") long timeoutMinutes) {
+        this.repo = repo;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.timeoutMinutes = timeoutMinutes;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 10, 10, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void create(String token, Long employeeId) {
+        repo.save(new AuthSession(hash(token), employeeId, LocalDateTime.now()));
+    }
+
+    @Override
+    public Long touch(String token) {
+        long nowMillis = System.currentTimeMillis();
+        synchronized (verified) {
+            Verified cached = verified.get(token);
+            if (cached != null && nowMillis - cached.verifiedAt() < REFRESH_INTERVAL_SECONDS * 1000) {
+                return cached.employeeId();
+            }
+        }
+
+        String tokenHash = hash(token);
+        AuthSession session = repo.findById(tokenHash).orElse(null);
+        if (session == null) {
+            forget(token);
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (session.getLastAccessed().isBefore(now.minusMinutes(timeoutMinutes))) {
+            repo.deleteById(tokenHash);
+            forget(token);
+            return null;
+        }
+        LocalDateTime staleBefore = now.minusSeconds(REFRESH_INTERVAL_SECONDS);
+        if (session.getLastAccessed().isBefore(staleBefore)) {
+            transaction.executeWithoutResult(status -> repo.refresh(tokenHash, now, staleBefore));
+        }
+        synchronized (verified) {
+            verified.put(token, new Verified(session.getEmployeeId(), nowMillis));
+        }
+        return session.getEmployeeId();
+    }
+
+    @Override
+    public void remove(String token) {
+        forget(token);
+        repo.deleteById(hash(token));
+    }
+
+    private void forget(String token) {
+        synchronized (verified) {
+            verified.remove(token);
+        }
+    }
+
+    /**
+     * ลบเซสชันที่หมดอายุทั้งหมดด้วยคำสั่งเดียว
+     */
+    void sweep() {
+        try {
+            transaction.executeWithoutResult(
+                    status -> repo.deleteExpired(LocalDateTime.now().minusMinutes(timeoutMinutes)));
+        } catch (RuntimeException e) {
+            // เซสชันที่หมดอายุยังอยู่ในตาราง รอบถัดไปจะลองใหม่
+            log.warn("Expired session sweep failed, will retry", e);
+        }
+    }
+
+    /**
+     * หยุดเธรดลบเซสชันเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * คำนวณค่า SHA-256 ของโทเคนเป็นเลขฐานสิบหก
+     */
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.LoyaltyAccrualEvent;
+import com.poscatcafe.repository.CustomerRepository;
+import com.poscatcafe.repository.LoyaltyAccrualEventRepository;
+import com.poscatcafe.repository.LoyaltyLedgerRepository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * สะสมแต้มจากการซื้อแบบ asynchronous ผ่านตาราง outbox
+ * ขั้นตอนชำระเงินบันทึกเพียงเหตุการณ์หนึ่งแถว ส่วนเธรดพื้นหลังจะดึงเหตุการณ์เป็นชุด
+ * แล้วเพิ่มแต้มด้วย UPDATE เดียวต่อลูกค้า พร้อมบันทึกสมุดบัญชีแต้มรายออเดอร์
+ */
+@Service
+public class LoyaltyAccrualService {
+    private static final Logger log = LoggerFactory.getLogger(LoyaltyAccrualService.class);
+    private final LoyaltyAccrualEventRepository eventRepo;
+    private final LoyaltyLedgerRepository ledgerRepo;
+    private final CustomerRepository customerRepo;
+    private final CustomerService customerService;
+    private final TransactionTemplate transaction;
+    private final ScheduledExecutorService worker;
+    private final int batchSize;
+    private final long intervalMillis;
+
+    /**
+     * สร้างบริการสะสมแต้มแบบ asynchronous พร้อมขนาดชุดและรอบการดึงเหตุการณ์
+     */
+    public LoyaltyAccrualService(
+            LoyaltyAccrualEventRepository eventRepo,
+            LoyaltyLedgerRepository ledgerRepo,
+            CustomerRepository customerRepo,
+            CustomerService customerService,
+            PlatformTransactionManager transactionManager,
+            @Value("${pos.loyalty.accrual.batch-size:200}") int batchSize,
+            @Value("${pos.loyalty.accrual.interval-ms:1000}") long intervalMillis) {
+        this.eventRepo = eventRepo;
+        this.ledgerRepo = ledgerRepo;
+        this.customerRepo = customerRepo;
+        this.customerService = customerService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalMillis = Math.max(50, intervalMillis);
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "loyalty-accrual");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * บันทึกเหตุการณ์สะสมแต้มของออเดอร์ (ต้องเรียกภายใน transaction ของออเดอร์)
+     * เมื่อ transaction commit แล้วจะปลุกเธรดพื้นหลังให้ประมวลผลทันที
+     */
+    public void enqueue(Long orderId, Long customerId, int points) {
+        if (points <= 0) {
+            return;
+        }
+        eventRepo.save(new LoyaltyAccrualEvent(orderId, customerId, points));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        worker.execute(LoyaltyAccrualService.this::drain);
+                    } catch (RejectedExecutionException e) {
+                        // กำลังปิดระบบ เหตุการณ์จะถูกประมวลผลเมื่อเริ่มระบบครั้งถัดไป
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * เริ่มเธรดพื้นหลังเมื่อระบบพร้อม รวมถึงประมวลผลเหตุการณ์ที่ค้างจากการปิดระบบครั้งก่อน
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.scheduleWithFixedDelay(this::drain, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * หยุดเธรดพื้นหลังเมื่อปิดระบบ (เหตุการณ์ที่ยังไม่ถูกประมวลผลจะรออยู่ในตาราง)
+     */
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * ประมวลผลเหตุการณ์ที่รออยู่ทีละชุดจนหมด คืนจำนวนเหตุการณ์ที่ประมวลผล
+     */
+    public int drain() {
+        int total = 0;
+        try {
+            int processed;
+            do {
+                processed = transaction.execute(status -> processBatch());
+                if (processed > 0) {
+                    customerService.changed();
+                }
+                total += processed;
+            } while (processed == batchSize);
+        } catch (RuntimeException e) {
+            // เหตุการณ์ยังอยู่ในตาราง รอบถัดไปจะลองใหม่
+            log.warn("Loyalty accrual failed, will retry", e);
+        }
+        return total;
+    }
+
+    /**
+     * ประมวลผลเหตุการณ์หนึ่งชุดใน transaction เดียว: อ้างสิทธิ์เหตุการณ์ บันทึกสมุดบัญชี แล้วรวมแต้มต่อลูกค้า
+     */
+    private int processBatch() {
+        List<LoyaltyAccrualEvent> events = eventRepo.findPending(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(events.size());
+        for (LoyaltyAccrualEvent event : events) {
+            ids.add(event.getId());
+        }
+        if (eventRepo.markProcessed(ids, LocalDateTime.now()) != ids.size()) {
+            // อีกอินสแตนซ์ประมวลผลบางรายการไปแล้ว ย้อนกลับทั้งชุดแล้วดึงใหม่ในรอบถัดไป
+            throw new IllegalStateException("accrual batch claimed concurrently");
+        }
+
+        // เรียงตามรหัสลูกค้าเพื่อ lock แถวลูกค้าในลำดับเดียวกับ transaction อื่น ลดโอกาส deadlock
+        Map<Long, List<LoyaltyAccrualEvent>> byCustomer = new TreeMap<>();
+        for (LoyaltyAccrualEvent event : events) {
+            byCustomer.computeIfAbsent(event.getCustomerId(), k -> new ArrayList<>()).add(event);
+        }
+        byCustomer.forEach((customerId, customerEvents) -> {
+            // บันทึกสมุดบัญชีก่อนทีละเหตุการณ์ และเพิ่มแต้มเฉพาะรายการที่บันทึกใหม่
+            // เหตุการณ์ของออเดอร์ที่ได้แต้มไปแล้วจึงถูกข้าม แทนที่จะทำให้ทั้งชุดย้อนกลับซ้ำทุกรอบ
+            // ลูกค้าที่ถูกลบไปแล้วจะไม่ได้แต้ม แต่เหตุการณ์ยังถือว่าประมวลผลแล้ว
+            int points = 0;
+            for (LoyaltyAccrualEvent event : customerEvents) {
+                if (ledgerRepo.insertEarnIfAbsent(customerId, event.getOrderId(), event.getPoints()) > 0) {
+                    points += event.getPoints();
+                }
+            }
+            if (points > 0) {
+                customerRepo.addPoints(customerId, points);
+            }
+        });
+        return events.size();
+    }
+}
@@ -2,8 +2,16 @@ package com.poscatcafe.service;
 
 import com.poscatcafe.dto.LoyaltyDTO;
 import com.poscatcafe.model.Customer;
+import com.poscatcafe.model.LoyaltyLedgerEntry;
 import com.poscatcafe.repository.CustomerRepository;
+import com.poscatcafe.repository.LoyaltyLedgerRepository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -16,11 +24,18 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class LoyaltyService {
+    private static final Logger log = LoggerFactory.getLogger(LoyaltyService.class);
     private final CustomerService customerService;
     private final CustomerRepository customerRepository;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final LoyaltyLedgerRepository ledgerRepository;
+    private final LoyaltyAccrualService loyaltyAccrualService;
 
-    // Earn rule: every 10 baht spent grants 1 point
-    public static final double POINTS_PER_BAHT = 1.0 / 2.5;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Earn rule: every 2.50 baht (250 satang) spent grants 1 point
+    public static final long SATANG_PER_POINT = 250;
 
     // Redeem rule: 100 points can be exchanged for 1 discount coupon
     public static final int POINTS_PER_COUPON = 100;
@@ -28,29 +43,29 @@ public class LoyaltyService {
     /**
      * สร้างบริการสะสมแต้มพร้อมพึ่งพาบริการลูกค้าและคลังข้อมูลลูกค้า
      */
-    public LoyaltyService(CustomerService customerService, CustomerRepository customerRepository) {
+    public LoyaltyService(
+            CustomerService customerService,
+            CustomerRepository customerRepository,
+            CustomerSearchIndex customerSearchIndex,
+            LoyaltyLedgerRepository ledgerRepository,
+            LoyaltyAccrualService loyaltyAccrualService) {
         this.customerService = customerService;
         this.customerRepository = customerRepository;
+        this.customerSearchIndex = customerSearchIndex;
+        this.ledgerRepository = ledgerRepository;
+        this.loyaltyAccrualService = loyaltyAccrualService;
     }
 
     /**
      * ค้นหาลูกค้าจากชื่อหรือเบอร์โทรเพื่อดูสถานะสะสมแต้ม
+     * ใช้ดัชนีในหน่วยความจำหารหัส 10 รายการแรก แล้วโหลดเฉพาะลูกค้าเหล่านั้นเพื่อให้แต้มเป็นค่าล่าสุด
      */
     public List<LoyaltyDTO> searchCustomers(String query) {
         if (query == null || query.isBlank()) {
             return List.of();
         }
 
-        String normalizedQuery = query.trim().toLowerCase();
-
-        List<Customer> customers = customerService.all().stream()
-                .filter(c -> {
-                    String name = Optional.ofNullable(c.getName()).orElse("");
-                    String phone = Optional.ofNullable(c.getPhone()).orElse("");
-                    return name.toLowerCase().contains(normalizedQuery) || phone.contains(query.trim());
-                })
-                .limit(10)
-                .collect(Collectors.toList());
+        List<Customer> customers = customerService.getAll(customerSearchIndex.search(query, 10));
 
         return customers.stream()
                 .map(c -> new LoyaltyDTO(c.getId(), Optional.ofNullable(c.getName()).orElse("ลูกค้า"), c.getLoyaltyPoints()))
@@ -62,33 +77,34 @@ public class LoyaltyService {
      */
     @Transactional
     public void addPoints(Long customerId, Integer points) {
-        Customer customer = customerService.get(customerId);
-        if (customer != null) {
-            int current = customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
-            customer.setLoyaltyPoints(current + (points != null ? points : 0));
-            customerService.save(customer);
+        if (points != null && points != 0) {
+            applyPoints(customerId, points, LoyaltyLedgerEntry.ADJUST, null);
         }
     }
 
     /**
-     * คำนวณแต้มที่จะได้รับจากยอดซื้อที่กำหนด
+     * คำนวณแต้มที่จะได้รับจากยอดซื้อที่กำหนด (สตางค์)
      */
-    public int calculateEarnedPoints(double purchaseAmount) {
-        return (int) Math.floor(purchaseAmount * POINTS_PER_BAHT);
+    public int calculateEarnedPoints(long purchaseAmount) {
+        return purchaseAmount > 0 ? (int) (purchaseAmount / SATANG_PER_POINT) : 0;
     }
 
     /**
-     * คำนวณและเพิ่มแต้มสะสมจากการซื้อ
+     * คำนวณและเพิ่มแต้มสะสมจากการซื้อ (ยอดซื้อเป็นสตางค์)
      */
-    public Customer addPointsFromPurchase(Long customerId, double purchaseAmount) {
-        Customer customer = customerRepository.findById(customerId).orElse(null);
-        if (customer != null) {
-            int current = customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
-            int pointsToAdd = calculateEarnedPoints(purchaseAmount);
-            customer.setLoyaltyPoints(current + pointsToAdd);
-            return customerRepository.save(customer);
+    public Customer addPointsFromPurchase(Long customerId, long purchaseAmount) {
+        int points = calculateEarnedPoints(purchaseAmount);
+        if (points > 0 && !applyPoints(customerId, points, LoyaltyLedgerEntry.EARN, null)) {
+            return null;
         }
-        return null;
+        return customerRepository.findById(customerId).orElse(null);
+    }
+
+    /**
+     * บันทึกแต้มที่จะได้จากออเดอร์ลง outbox ภายใน transaction ของออเดอร์ แต้มจะถูกเพิ่มโดยเธรดพื้นหลังหลัง commit
+     */
+    public void queuePointsFromPurchase(Long customerId, Long orderId, long purchaseAmount) {
+        loyaltyAccrualService.enqueue(orderId, customerId, calculateEarnedPoints(purchaseAmount));
     }
 
     /**
@@ -96,16 +112,7 @@ public class LoyaltyService {
      */
     @Transactional
     public boolean redeemCoupon(Long customerId) {
-        Customer customer = customerService.get(customerId);
-        if (customer != null) {
-            int current = customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
-            if (current >= POINTS_PER_COUPON) {
-                customer.setLoyaltyPoints(current - POINTS_PER_COUPON);
-                customerService.save(customer);
-                return true;
-            }
-        }
-        return false;
+        return applyPoints(customerId, -POINTS_PER_COUPON, LoyaltyLedgerEntry.REDEEM, null);
     }
 
     /**
@@ -116,6 +123,56 @@ public class LoyaltyService {
         return redeemCoupon(customerId);
     }
 
+    /**
+     * ใช้คูปองของลูกค้าที่โหลดไว้แล้วใน transaction เดียวกัน (ไม่ต้องค้นลูกค้าซ้ำ)
+     */
+    @Transactional
+    public boolean useCoupon(Customer customer, Long orderId) {
+        if (!applyPoints(customer.getId(), -POINTS_PER_COUPON, LoyaltyLedgerEntry.REDEEM, orderId)) {
+            return false;
+        }
+        syncBalance(customer);
+        return true;
+    }
+
+    /**
+     * บันทึกแต้มคงเหลือที่มีอยู่ก่อนเริ่มใช้สมุดบัญชีแต้ม เป็นรายการยอดยกมาของลูกค้าที่ยังไม่มีรายการใดเลย
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOpeningBalances() {
+        int created = ledgerRepository.insertOpeningBalances();
+        if (created > 0) {
+            log.info("Loyalty ledger: recorded opening balances for {} customers", created);
+        }
+    }
+
+    /**
+     * ปรับแต้มด้วยคำสั่ง UPDATE แบบอะตอมมิก (การหักแต้มมีเงื่อนไขว่าแต้มต้องพอ) แล้วบันทึกรายการลงสมุดบัญชี
+     * คืน false เมื่อไม่พบลูกค้าหรือแต้มไม่พอ โดยไม่มีการเปลี่ยนแปลงใดๆ
+     */
+    private boolean applyPoints(Long customerId, int points, String reason, Long orderId) {
+        int updated = points >= 0
+                ? customerRepository.addPoints(customerId, points)
+                : customerRepository.deductPoints(customerId, -points);
+        if (updated == 0) {
+            return false;
+        }
+        ledgerRepository.save(new LoyaltyLedgerEntry(customerId, points, reason, orderId));
+        customerService.changed();
+        return true;
+    }
+
+    /**
+     * อัปเดตแต้มบนอ็อบเจกต์ลูกค้าในหน่วยความจำให้ตรงกับฐานข้อมูลหลังการ UPDATE แบบ bulk
+     */
+    private void syncBalance(Customer customer) {
+        if (entityManager.contains(customer)) {
+            entityManager.refresh(customer);
+        } else {
+            customer.setLoyaltyPoints(customerRepository.findPoints(customer.getId()));
+        }
+    }
+
     /**
      * ข้อมูลแต้มสะสมแบบละเอียด
      */
@@ -0,0 +1,73 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Money;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import java.util.List;
+
+/**
+ * แปลงคอลัมน์ยอดเงินที่ฐานข้อมูลเดิมสร้างเป็น double precision ให้เป็น numeric(14,2) ครั้งเดียวเมื่อเริ่มระบบ
+ * (ddl-auto=update ไม่เปลี่ยนชนิดคอลัมน์เอง) เพื่อให้ผลรวมยอดขายฝั่งฐานข้อมูลเป็นค่าตรงทุกสตางค์
+ * ค่าเดิมถูกปัดเป็นทศนิยม 2 ตำแหน่ง และส่วนลดที่เป็น null ถูกตั้งเป็นศูนย์
+ * ทำตอนสร้าง bean ก่อน EntityManagerFactory (และก่อนเว็บเซิร์ฟเวอร์เริ่มรับคำขอ) จึงไม่มีคำขอใดอ่านตารางระหว่างแปลง
+ */
+@Service
+public class MoneyColumnMigration implements InitializingBean {
+    private static final Logger log = LoggerFactory.getLogger(MoneyColumnMigration.class);
+    private static final List<String[]> COLUMNS = List.of(
+            new String[] {"orders", "total_amount"},
+            new String[] {"orders", "discount_amount"},
+            new String[] {"order_item", "price"},
+            new String[] {"order_item", "subtotal"},
+            new String[] {"daily_sales_summary", "total_sales"});
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * สร้างตัวแปลงคอลัมน์พร้อมการเชื่อมต่อฐานข้อมูล
+     */
+    public MoneyColumnMigration(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * ตรวจชนิดคอลัมน์ยอดเงินแล้วแปลงเฉพาะคอลัมน์ที่ยังเป็นเลขทศนิยมลอยตัว
+     * ฐานข้อมูลใหม่ที่ยังไม่มีตารางจะไม่มีคอลัมน์ให้แปลง (Hibernate สร้างเป็น numeric ตั้งแต่แรก)
+     */
+    @Override
+    public void afterPropertiesSet() {
+        for (String[] column : COLUMNS) {
+            String table = column[0];
+            String name = column[1];
+            Integer floating = jdbc.queryForObject(
+                    "select count(*) from information_schema.columns where table_schema = current_schema() "
+                            + "and table_name = ? and column_name = ? and data_type in ('double precision', 'real')",
+                    Integer.class, table, name);
+            if (floating == null || floating == 0) {
+                continue;
+            }
+            if ("discount_amount".equals(name)) {
+                jdbc.update("update " + table + " set " + name + " = 0 where " + name + " is null");
+            }
+            jdbc.execute("alter table " + table + " alter column " + name + " type " + Money.COLUMN_TYPE
+                    + " using round(" + name + "::numeric, " + Money.SCALE + ")");
+            log.info("Money columns: converted {}.{} to {}", table, name, Money.COLUMN_TYPE);
+        }
+    }
+
+    /**
+     * ให้ EntityManagerFactory รอจนแปลงคอลัมน์เสร็จ
+     */
+    @Component
+    static class EntityManagerFactoryDependency extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependency() {
+            super(MoneyColumnMigration.class);
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.poscatcafe.service;
 
+import com.poscatcafe.model.Money;
 import com.poscatcafe.model.Order;
+import com.poscatcafe.model.Product;
 import com.poscatcafe.repository.OrderRepository;
 import com.poscatcafe.repository.ProductRepository;
+import com.poscatcafe.repository.SalesReportRepository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * ให้บริการเกี่ยวกับออเดอร์ เช่น บันทึก สรุปยอด และสร้างรายงาน
@@ -18,45 +33,118 @@ import org.springframework.stereotype.Service;
 public class OrderService {
     private final OrderRepository orderRepo;
     private final ProductRepository productRepo;
+    private final ProductService productService;
+    private final SalesReportRepository reportRepo;
+    private final SalesRollupService salesRollupService;
+    private final ReceiptNumberService receiptNumberService;
+    private final TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
-     * สร้างบริการออเดอร์พร้อมพึ่งพาคลังข้อมูลและบริการแต้มสะสม
+     * สร้างบริการออเดอร์พร้อมพึ่งพาคลังข้อมูลและบริการสรุปยอดขาย
      */
-    public OrderService(OrderRepository orderRepo, ProductRepository productRepo) {
+    public OrderService(
+            OrderRepository orderRepo,
+            ProductRepository productRepo,
+            ProductService productService,
+            SalesReportRepository reportRepo,
+            SalesRollupService salesRollupService,
+            ReceiptNumberService receiptNumberService,
+            PlatformTransactionManager transactionManager) {
         this.orderRepo = orderRepo;
         this.productRepo = productRepo;
+        this.productService = productService;
+        this.reportRepo = reportRepo;
+        this.salesRollupService = salesRollupService;
+        this.receiptNumberService = receiptNumberService;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
     /**
-     * บันทึกออเดอร์ใหม่ พร้อมปรับสต็อกและเพิ่มแต้มสะสมให้ลูกค้า
+     * บันทึกออเดอร์ใหม่ พร้อมปรับสต็อกและปรับยอดในตารางสรุปยอดขาย
      */
     public Order save(Order order) {
-        double subtotal = 0;
+        List<Long> ids = order.getItems().stream()
+                .map(item -> item.getProduct().getId())
+                .distinct()
+                .collect(Collectors.toList());
+        return save(order, productService.getAllById(ids));
+    }
+
+    /**
+     * บันทึกออเดอร์โดยใช้สินค้าที่โหลดไว้แล้ว เพื่อไม่ต้องค้นสินค้าซ้ำทีละรายการ
+     * สต็อกถูกหักด้วย UPDATE แบบมีเงื่อนไขที่ฐานข้อมูล จึงไม่มีการขายเกินเมื่อหลายเครื่องขายพร้อมกัน
+     * เลขที่ใบเสร็จ (ถ้ายังไม่มี) ถูกออกก่อนเปิด transaction เพราะการจองบล็อกเลขใหม่ใช้ connection ของตัวเอง
+     * ผู้เรียกที่อยู่ใน transaction อยู่แล้วต้องกำหนดเลขที่ใบเสร็จก่อนเปิด transaction นั้น (ดู PaymentService)
+     */
+    public Order save(Order order, Map<Long, Product> products) {
+        if (order.getReceiptNo() == null || order.getReceiptNo().isBlank()) {
+            order.setReceiptNo(receiptNumberService.next());
+        }
+        return transaction.execute(status -> insert(order, products));
+    }
+
+    /**
+     * หักสต็อก คำนวณยอด แล้วบันทึกออเดอร์และยอดสรุปใน transaction ของผู้เรียก
+     */
+    private Order insert(Order order, Map<Long, Product> products) {
+        long subtotal = 0;
+        Map<Long, Integer> quantities = new TreeMap<>(); // เรียงตามรหัสสินค้าเพื่อล็อกแถวในลำดับเดียวกันทุกออเดอร์ (กัน deadlock)
         for (var item : order.getItems()) {
-            var product = productRepo.findById(item.getProduct().getId()).orElseThrow();
+            var product = products.get(item.getProduct().getId());
+            if (product == null) {
+                throw new NoSuchElementException("Product not found: " + item.getProduct().getId());
+            }
             item.setProduct(product);
             if (item.getPrice() <= 0) {
-                item.setPrice(product.getPrice());
+                item.setPrice(Money.ofBaht(product.getPrice()));
             }
-            if (product.getStock() < item.getQuantity()) {
-                throw new RuntimeException("Stock not enough for " + product.getName());
+            quantities.merge(product.getId(), item.getQuantity(), Integer::sum);
+            subtotal = Math.addExact(subtotal, Money.times(item.getPrice(), item.getQuantity()));
+        }
+        // ห้ามแก้ stock บนเอนทิตีแล้ว save เพราะจะเขียนค่าที่อ่านไว้ทับยอดที่เครื่องอื่นเพิ่งหัก
+        for (var entry : quantities.entrySet()) {
+            if (productRepo.decrementStock(entry.getKey(), entry.getValue()) == 0) {
+                throw new RuntimeException("Stock not enough for " + products.get(entry.getKey()).getName());
             }
-            product.setStock(product.getStock() - item.getQuantity());
-            productRepo.save(product);
-            subtotal += item.getPrice() * item.getQuantity();
         }
-        double discount = Math.max(0.0, order.getDiscountAmount() != null ? order.getDiscountAmount() : 0.0);
-        double total = Math.max(0.0, subtotal - discount);
+        stockSoldAfterCommit(quantities);
+        long discount = Math.max(0, order.getDiscountAmount());
+        long total = Math.max(0, subtotal - discount);
         order.setDiscountAmount(discount);
         order.setTotalAmount(total);
         if (order.getOrderDate() == null) {
             order.setOrderDate(LocalDateTime.now());
         }
-        if (order.getReceiptNo() == null || order.getReceiptNo().isBlank()) {
-            order.setReceiptNo(
-                    "R" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")));
+        Order saved = orderRepo.save(order);
+        salesRollupService.record(saved);
+        return saved;
+    }
+
+    /**
+     * ปรับสต็อกใน snapshot สินค้าเมื่อออเดอร์ commit สำเร็จ (ถ้า rollback สต็อกในหน่วยความจำจะไม่เปลี่ยน)
+     */
+    private void stockSoldAfterCommit(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            productService.stockSold(quantities);
+            return;
         }
-        return orderRepo.save(order);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productService.stockSold(quantities);
+            }
+        });
+    }
+
+    /**
+     * ดึงออเดอร์ตามรหัสพร้อมรายการสินค้า
+     */
+    public Order getWithItems(Long id) {
+        return orderRepo.findWithItemsById(id)
+                .orElseThrow(() -> new NoSuchElementException("ไม่พบออเดอร์ " + id));
     }
 
     /**
@@ -66,4 +154,63 @@ public class OrderService {
         return orderRepo.findByOrderDateBetween(start.atStartOfDay(), end.atTime(LocalTime.MAX));
     }
 
+    /**
+     * ดึงออเดอร์ในช่วงวันที่ทีละหน้าแบบ keyset เรียงจากใหม่ไปเก่า
+     * ส่ง afterDate/afterId เป็น null สำหรับหน้าแรก หรือค่าของแถวสุดท้ายในหน้าก่อนสำหรับหน้าถัดไป
+     */
+    @Transactional(readOnly = true)
+    public List<Order> page(LocalDate start, LocalDate end, LocalDateTime afterDate, Long afterId, int limit) {
+        List<Order> orders = findPage(start.atStartOfDay(), end.atTime(LocalTime.MAX), afterDate, afterId, limit);
+        orders.forEach(o -> o.getItems().size());
+        return orders;
+    }
+
+    /**
+     * ไล่ส่งออเดอร์ทั้งหมดในช่วงวันที่ให้ sink ทีละหน้า และล้าง persistence context หลังจบแต่ละหน้า
+     * เพื่อให้หน่วยความจำคงที่ไม่ว่าช่วงวันที่จะมีออเดอร์มากเพียงใด
+     */
+    @Transactional(readOnly = true)
+    public void streamBetween(LocalDate start, LocalDate end, int pageSize, Consumer<Order> sink) {
+        LocalDateTime from = start.atStartOfDay();
+        LocalDateTime to = end.atTime(LocalTime.MAX);
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        while (true) {
+            List<Order> orders = findPage(from, to, afterDate, afterId, pageSize);
+            orders.forEach(sink);
+            if (orders.size() < pageSize) {
+                return;
+            }
+            Order last = orders.get(orders.size() - 1);
+            afterDate = last.getOrderDate();
+            afterId = last.getId();
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * นับจำนวนออเดอร์ในช่วงวันที่กำหนดด้วยคิวรีฝั่งฐานข้อมูล
+     */
+    public long countBetween(LocalDate start, LocalDate end) {
+        return reportRepo.countOrders(start.atStartOfDay(), end.atTime(LocalTime.MAX));
+    }
+
+    /**
+     * รวมยอดขายสุทธิ (สตางค์) ในช่วงวันที่กำหนดด้วยคิวรีฝั่งฐานข้อมูล
+     */
+    public long totalSalesBetween(LocalDate start, LocalDate end) {
+        return Money.ofDecimal(reportRepo.sumTotal(start.atStartOfDay(), end.atTime(LocalTime.MAX)));
+    }
+
+    /**
+     * เลือกคิวรีหน้าแรกหรือหน้าถัดไปตามเคอร์เซอร์ที่ส่งมา
+     */
+    private List<Order> findPage(
+            LocalDateTime from, LocalDateTime to, LocalDateTime afterDate, Long afterId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (afterDate == null || afterId == null) {
+            return orderRepo.findPage(from, to, page);
+        }
+        return orderRepo.findPageAfter(from, to, afterDate, afterId, page);
+    }
 }
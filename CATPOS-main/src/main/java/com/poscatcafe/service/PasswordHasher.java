@@ -0,0 +1,85 @@
+package com.poscatcafe.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * เข้ารหัสและตรวจสอบรหัสผ่านด้วย BCrypt ตามค่า cost ที่กำหนด
+ * การตรวจสอบตอนล็อกอินทำในเธรดพูลแยกที่มีคิวจำกัด เพื่อไม่ให้เธรดของ Tomcat ถูกใช้หมดช่วงที่พนักงานล็อกอินพร้อมกัน
+ * เมื่อคิวเต็มจะปฏิเสธทันทีด้วย RejectedExecutionException แทนการรอคิวไปเรื่อย ๆ
+ */
+@Service
+public class PasswordHasher {
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor verifier;
+
+    /**
+     * สร้างตัวเข้ารหัสตามค่า cost และเธรดพูลสำหรับตรวจสอบรหัสผ่าน
+     */
+    public PasswordHasher(
+            @Value("${pos.auth.bcrypt-strength:10}") int strength,
+            @Value("${pos.auth.bcrypt-threads:0}") int threads,
+            @Value("${pos.auth.bcrypt-queue:32}") int queueCapacity) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger counter = new AtomicInteger();
+        this.verifier = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * เข้ารหัสรหัสผ่านด้วยค่า cost ปัจจุบัน
+     */
+    public String encode(String rawPassword) {
+        return encoder.encode(rawPassword);
+    }
+
+    /**
+     * ตรวจว่ารหัสผ่านตรงกับค่าที่เข้ารหัสไว้หรือไม่ (ใช้ CPU มาก ควรเรียกผ่าน submit)
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return encoder.matches(rawPassword, encodedPassword);
+    }
+
+    /**
+     * ส่งงานที่ต้องตรวจรหัสผ่านไปทำในเธรดพูลของ BCrypt
+     * โยน RejectedExecutionException ทันทีถ้าคิวเต็ม
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, verifier);
+    }
+
+    /**
+     * ตรวจว่ารหัสผ่านที่เก็บไว้ใช้ค่า cost ต่ำกว่าค่าปัจจุบันและควรเข้ารหัสใหม่หรือไม่
+     */
+    public boolean needsRehash(String encodedPassword) {
+        try {
+            return encoder.upgradeEncoding(encodedPassword);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * หยุดเธรดพูลเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        verifier.shutdownNow();
+    }
+}
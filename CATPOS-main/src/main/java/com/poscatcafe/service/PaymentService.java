@@ -1,20 +1,12 @@
 package com.poscatcafe.service;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.EncodeHintType;
-import com.google.zxing.qrcode.QRCodeWriter;
 import com.poscatcafe.dto.*;
 import com.poscatcafe.model.*;
-import com.google.zxing.common.BitMatrix;
-import java.awt.image.BufferedImage;
-import java.awt.Color;
-import javax.imageio.ImageIO;
-import java.io.ByteArrayOutputStream;
-import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -27,8 +19,12 @@ public class PaymentService {
     private final ProductService productService;
     private final LoyaltyService loyaltyService;
     private final CustomerService customerService;
-    private final ReceiptService receiptService;
+    private final ReceiptArchiveService receiptArchiveService;
     private final StoreSettingService storeSettingService;
+    private final QrCodeService qrCodeService;
+    private final ReceiptNumberService receiptNumberService;
+    private final CartSessionService cartSessionService;
+    private final TransactionTemplate transaction;
 
     /**
      * สร้างบริการชำระเงินพร้อมบริการอื่นที่เกี่ยวข้อง
@@ -39,28 +35,77 @@ public class PaymentService {
             ProductService productService,
             LoyaltyService loyaltyService,
             CustomerService customerService,
-            ReceiptService receiptService,
-            StoreSettingService storeSettingService) {
+            ReceiptArchiveService receiptArchiveService,
+            StoreSettingService storeSettingService,
+            QrCodeService qrCodeService,
+            ReceiptNumberService receiptNumberService,
+            CartSessionService cartSessionService,
+            PlatformTransactionManager transactionManager) {
         this.cartService = cartService;
         this.orderService = orderService;
         this.productService = productService;
         this.loyaltyService = loyaltyService;
         this.customerService = customerService;
-        this.receiptService = receiptService;
+        this.receiptArchiveService = receiptArchiveService;
         this.storeSettingService = storeSettingService;
+        this.qrCodeService = qrCodeService;
+        this.receiptNumberService = receiptNumberService;
+        this.cartSessionService = cartSessionService;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
     /**
      * ประมวลผลการชำระเงินตั้งแต่คำนวณยอด ตรวจสอบสต็อก ไปจนถึงออกใบเสร็จ
+     * เลขที่ใบเสร็จถูกออกก่อนเปิด transaction ของการชำระเงิน หากต้องจองบล็อกเลขใหม่จากฐานข้อมูล
+     * จึงไม่ต้องขอ connection ที่สองขณะถือ connection ของการชำระเงินอยู่ (เลขของการชำระเงินที่ล้มเหลวถูกข้ามไป)
      */
-    @Transactional
     public PaymentResponseDTO processPayment(PaymentRequestDTO request) {
+        return processPayment(request, null);
+    }
+
+    /**
+     * ชำระเงินของผู้ใช้ที่ระบุ หากคำขอมีรหัสตะกร้า รายการสินค้าและจำนวนจะมาจากตะกร้าฝั่งเซิร์ฟเวอร์ของผู้ใช้นั้น
+     * (รายการที่เครื่องขายส่งมาไม่ถูกใช้) และตะกร้าถูกทิ้งเมื่อชำระเงินสำเร็จ ราคาต่อหน่วยมาจาก snapshot สินค้าเสมอ
+     */
+    public PaymentResponseDTO processPayment(PaymentRequestDTO request, Long ownerId) {
+        String cartId = request.getCartId();
+        if (cartId != null) {
+            CartSessionDTO cart = cartSessionService.get(cartId, ownerId);
+            if (cart == null) {
+                PaymentResponseDTO response = new PaymentResponseDTO();
+                response.setSuccess(false);
+                response.setErrorMessage("ไม่พบตะกร้าหรือตะกร้าหมดอายุ กรุณาลองใหม่อีกครั้ง");
+                return response;
+            }
+            request.setItems(cart.getItems());
+        }
+        String receiptNo = receiptNumberService.next();
+        PaymentResponseDTO response = transaction.execute(status -> checkout(request, receiptNo, status));
+        if (cartId != null && Boolean.TRUE.equals(response.getSuccess())) {
+            cartSessionService.discard(cartId, ownerId);
+        }
+        return response;
+    }
+
+    /**
+     * ขั้นตอนการชำระเงินทั้งหมดภายใน transaction เดียว
+     */
+    private PaymentResponseDTO checkout(PaymentRequestDTO request, String receiptNo, TransactionStatus status) {
         PaymentResponseDTO response = new PaymentResponseDTO();
 
         try {
+            // 0. Load every product and the customer once; they are carried through the whole checkout
+            Map<Long, Product> products = productService.getAllById(CartService.productIds(request.getItems()));
+            Customer customer = request.getCustomerId() != null ? customerService.get(request.getCustomerId()) : null;
+            if (request.getCustomerId() != null && customer == null) {
+                response.setSuccess(false);
+                response.setErrorMessage("ไม่พบข้อมูลลูกค้า");
+                return response;
+            }
+
             // 1. Calculate cart and validate stock
             CartCalculationDTO cart = cartService.calculateCart(
-                    request.getItems(), request.getCustomerId(), request.getUseCoupon());
+                    request.getItems(), products, customer, request.getUseCoupon());
 
             if (!cart.getStockAvailable()) {
                 response.setSuccess(false);
@@ -76,7 +121,7 @@ public class PaymentService {
 
             // 3. Calculate change for cash payments
             if ("cash".equals(request.getPaymentMethod()) && request.getCashReceived() != null) {
-                double change = request.getCashReceived() - cart.getTotal();
+                long change = request.getCashReceived() - cart.getTotal();
                 if (change < 0) {
                     response.setSuccess(false);
                     response.setErrorMessage("เงินที่รับไม่เพียงพอ");
@@ -86,22 +131,23 @@ public class PaymentService {
             }
 
             // 4. Create order
-            Order order = createOrder(cart, request);
-            order = orderService.save(order);
+            Order order = createOrder(cart, request, products, customer);
+            order.setReceiptNo(receiptNo);
+            order = orderService.save(order, products);
 
             // 5. Handle loyalty operations
-            if (request.getCustomerId() != null) {
+            if (customer != null) {
                 if (Boolean.TRUE.equals(request.getUseCoupon())) {
-                    boolean redeemed = loyaltyService.useCoupon(request.getCustomerId());
+                    boolean redeemed = loyaltyService.useCoupon(customer, order.getId());
                     if (!redeemed) {
                         throw new IllegalStateException("แต้มไม่เพียงพอสำหรับใช้คูปอง");
                     }
                 }
-                loyaltyService.addPointsFromPurchase(request.getCustomerId(), order.getTotalAmount());
+                loyaltyService.queuePointsFromPurchase(customer.getId(), order.getId(), order.getTotalAmount());
             }
 
-            // 6. Generate receipt
-            String receiptHtml = receiptService.generateReceiptHtml(order);
+            // 6. Generate receipt (archived with the order for reprints)
+            String receiptHtml = receiptArchiveService.archive(order);
 
             response.setSuccess(true);
             response.setMessage("ชำระเงินสำเร็จ");
@@ -109,6 +155,8 @@ public class PaymentService {
             response.setReceiptHtml(receiptHtml);
 
         } catch (Exception e) {
+            // คืนค่าทุกอย่างที่ทำไปแล้ว (ออเดอร์ สต็อก แต้ม) เพราะข้อผิดพลาดถูกจับไว้และไม่ถูกส่งต่อออกจาก transaction
+            status.setRollbackOnly();
             response.setSuccess(false);
             response.setErrorMessage("เกิดข้อผิดพลาด: " + e.getMessage());
         }
@@ -117,39 +165,17 @@ public class PaymentService {
     }
 
     /**
-     * สร้างภาพ QR code สำหรับการชำระเงินผ่านพร้อมเพย์
+     * สร้างภาพ QR code สำหรับการชำระเงินผ่านพร้อมเพย์ (ยอดเงินเป็นสตางค์)
      */
-    private String generateQRCode(Double amount) {
+    private String generateQRCode(long amount) {
         try {
-            StoreSetting settings = storeSettingService.get();
-            String promptPayId = settings.getPromptpayId();
+            String promptPayId = storeSettingService.snapshot().promptpayId();
 
             if (promptPayId == null || promptPayId.isEmpty()) {
                 promptPayId = "0123456789"; // Default PromptPay ID
             }
 
-            // PromptPay QR Code format
-            String qrData = String.format("00020101021229370016A000000677010111011%s5303764540%.2f6304",
-                    promptPayId, amount);
-
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-
-            BitMatrix bitMatrix = qrCodeWriter.encode(qrData, BarcodeFormat.QR_CODE, 200, 200, hints);
-
-            BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
-            for (int x = 0; x < 200; x++) {
-                for (int y = 0; y < 200; y++) {
-                    image.setRGB(x, y, bitMatrix.get(x, y) ? Color.BLACK.getRGB() : Color.WHITE.getRGB());
-                }
-            }
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ImageIO.write(image, "PNG", outputStream);
-            byte[] imageBytes = outputStream.toByteArray();
-
-            return Base64.getEncoder().encodeToString(imageBytes);
+            return qrCodeService.promptPayQrBase64(promptPayId, amount);
 
         } catch (Exception e) {
             return null;
@@ -159,14 +185,14 @@ public class PaymentService {
     /**
      * สร้างออเดอร์จากผลการคำนวณตะกร้าและคำขอชำระเงิน
      */
-    private Order createOrder(CartCalculationDTO cart, PaymentRequestDTO request) {
+    private Order createOrder(
+            CartCalculationDTO cart, PaymentRequestDTO request, Map<Long, Product> products, Customer customer) {
         Order order = new Order();
         order.setTotalAmount(cart.getTotal());
         order.setDiscountAmount(cart.getDiscount());
         order.setPaymentMethod(request.getPaymentMethod());
 
-        if (request.getCustomerId() != null) {
-            Customer customer = customerService.get(request.getCustomerId());
+        if (customer != null) {
             order.setCustomer(customer);
             order.setCustomerName(customer.getName());
         }
@@ -174,7 +200,7 @@ public class PaymentService {
         // Create order items
         for (CartItemDTO cartItem : cart.getItems()) {
             OrderItem orderItem = new OrderItem();
-            Product product = productService.get(cartItem.getProductId());
+            Product product = products.get(cartItem.getProductId());
             orderItem.setProduct(product);
             orderItem.setProductName(product.getName());
             orderItem.setQuantity(cartItem.getQuantity());
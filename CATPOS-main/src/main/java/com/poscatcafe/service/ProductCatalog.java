@@ -0,0 +1,168 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * snapshot ของสินค้าทั้งหมด ณ เวอร์ชันหนึ่ง แก้ไขไม่ได้และใช้ร่วมกันได้ระหว่างหลายเธรด
+ * มีดัชนีตามรหัส รหัสสินค้าแบบสแกน และหมวดหมู่ การเปลี่ยนแปลงทุกครั้งสร้าง snapshot ใหม่ที่เวอร์ชันสูงขึ้น
+ * ส่วนเวอร์ชันรายการ (listVersion) เปลี่ยนเฉพาะเมื่อข้อมูลอื่นนอกจากสต็อกเปลี่ยน การหักสต็อกจากการขายจึงไม่ทำให้รายการเก่า
+ * สินค้าที่คืนจาก snapshot เป็นสำเนาที่ไม่ผูกกับ persistence context ผู้เรียกต้องไม่แก้ไข
+ */
+public final class ProductCatalog {
+    private final long version;
+    private final long listVersion;
+    private final List<Product> products;
+    private final Map<Long, Product> byId;
+    private final Map<String, Product> byCode;
+    private final Map<String, List<Product>> byCategory;
+
+    private ProductCatalog(long version, long listVersion, List<Product> products) {
+        products.sort(Comparator.comparing(Product::getId));
+        Map<Long, Product> byId = new HashMap<>(products.size() * 2);
+        Map<String, Product> byCode = new HashMap<>(products.size() * 2);
+        Map<String, List<Product>> byCategory = new HashMap<>();
+        for (Product product : products) {
+            byId.put(product.getId(), product);
+            if (product.getCode() != null) {
+                byCode.put(product.getCode(), product);
+            }
+            byCategory.computeIfAbsent(product.getCategory() != null ? product.getCategory() : "", c -> new ArrayList<>())
+                    .add(product);
+        }
+        byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+        this.version = version;
+        this.listVersion = listVersion;
+        this.products = Collections.unmodifiableList(products);
+        this.byId = byId;
+        this.byCode = byCode;
+        this.byCategory = byCategory;
+    }
+
+    /**
+     * สร้าง snapshot จากสินค้าที่โหลดจากฐานข้อมูล (เก็บเป็นสำเนา)
+     */
+    static ProductCatalog of(long version, Iterable<Product> loaded) {
+        List<Product> products = new ArrayList<>();
+        for (Product product : loaded) {
+            products.add(copy(product));
+        }
+        return new ProductCatalog(version, version, products);
+    }
+
+    /**
+     * คืน snapshot ใหม่ที่เพิ่มหรือแทนที่สินค้าหนึ่งรายการ
+     */
+    ProductCatalog with(long version, Product saved) {
+        List<Product> next = new ArrayList<>(products.size() + 1);
+        for (Product product : products) {
+            if (!product.getId().equals(saved.getId())) {
+                next.add(product);
+            }
+        }
+        next.add(copy(saved));
+        return new ProductCatalog(version, version, next);
+    }
+
+    /**
+     * คืน snapshot ใหม่ที่ไม่มีสินค้ารหัสนี้
+     */
+    ProductCatalog without(long version, Long id) {
+        List<Product> next = new ArrayList<>(products);
+        next.removeIf(product -> product.getId().equals(id));
+        return new ProductCatalog(version, version, next);
+    }
+
+    /**
+     * คืน snapshot ใหม่ที่หักสต็อกตามจำนวนที่ขายไป (รหัสสินค้า -> จำนวน) โดยคงเวอร์ชันรายการเดิมไว้
+     */
+    ProductCatalog withStockSold(long version, Map<Long, Integer> sold) {
+        List<Product> next = new ArrayList<>(products.size());
+        for (Product product : products) {
+            Integer quantity = sold.get(product.getId());
+            if (quantity == null) {
+                next.add(product);
+            } else {
+                Product updated = copy(product);
+                updated.setStock(Math.max(0, product.getStock() - quantity));
+                next.add(updated);
+            }
+        }
+        return new ProductCatalog(version, listVersion, next);
+    }
+
+    /**
+     * คืนเวอร์ชันของ snapshot (เพิ่มขึ้นทุกครั้งที่สินค้าเปลี่ยน)
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * คืนเวอร์ชันของรายการสินค้าโดยไม่นับการหักสต็อกจากการขาย (ใช้เป็น ETag ของรายการ)
+     */
+    public long listVersion() {
+        return listVersion;
+    }
+
+    /**
+     * คืนสินค้าทั้งหมดเรียงตามรหัส
+     */
+    public List<Product> products() {
+        return products;
+    }
+
+    /**
+     * คืนสินค้าตามรหัส หรือ null ถ้าไม่พบ
+     */
+    public Product get(Long id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    /**
+     * คืนสินค้าตามรหัสสินค้าแบบสแกนหรือพิมพ์ หรือ null ถ้าไม่พบ
+     */
+    public Product byCode(String code) {
+        return code != null ? byCode.get(code) : null;
+    }
+
+    /**
+     * คืนสินค้าในหมวดหมู่ที่ระบุ เรียงตามรหัส
+     */
+    public List<Product> byCategory(String category) {
+        return byCategory.getOrDefault(category, List.of());
+    }
+
+    /**
+     * คืนสินค้าหลายรายการตามรหัส (รหัสที่ไม่พบจะไม่อยู่ในแผนที่)
+     */
+    public Map<Long, Product> getAll(Collection<Long> ids) {
+        Map<Long, Product> found = new HashMap<>(ids.size() * 2);
+        for (Long id : ids) {
+            Product product = get(id);
+            if (product != null) {
+                found.put(id, product);
+            }
+        }
+        return found;
+    }
+
+    private static Product copy(Product source) {
+        Product product = new Product();
+        product.setId(source.getId());
+        product.setCode(source.getCode());
+        product.setName(source.getName());
+        product.setPrice(source.getPrice());
+        product.setStock(source.getStock());
+        product.setCategory(source.getCategory());
+        product.setImageUrl(source.getImageUrl());
+        return product;
+    }
+}
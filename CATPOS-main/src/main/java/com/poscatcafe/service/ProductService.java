@@ -3,48 +3,140 @@ package com.poscatcafe.service;
 import com.poscatcafe.model.Product;
 import com.poscatcafe.repository.ProductRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
  * ให้บริการจัดการข้อมูลสินค้า
+ * การอ่านสินค้าทั้งหมด ตามรหัส และตามรหัสสินค้าแบบสแกน ใช้ snapshot ในหน่วยความจำ (ProductCatalog)
+ * ซึ่งถูกแทนที่ทั้งก้อนเมื่อบันทึกหรือลบสินค้า และเมื่อหักสต็อกจากการขาย
+ * ทุกการเปลี่ยนแปลงถูกส่งต่อให้ ProductStreamService เพื่อแจ้งเครื่องขายที่เปิดอยู่
  */
 @Service
 public class ProductService {
     private final ProductRepository repo;
+    private final ProductStreamService streamService;
+    private final long refreshNanos;
+
+    private volatile Cached cached;
+    private long version;
+
+    private record Cached(ProductCatalog catalog, long loadedAt) {}
 
     /**
      * สร้างบริการสินค้าเชื่อมกับคลังข้อมูล
+     * หาก refresh-seconds มากกว่า 0 จะโหลดสินค้าใหม่จากฐานข้อมูลเมื่อ snapshot เก่ากว่าที่กำหนด
+     * (ใช้เมื่อรันหลายเครื่องและอีกเครื่องอาจแก้ไขสินค้าหรือหักสต็อก)
      */
-    public ProductService(ProductRepository repo) {
+    public ProductService(
+            ProductRepository repo,
+            ProductStreamService streamService,
+            @Value("${pos.catalog.refresh-seconds:0}") long refreshSeconds) {
         this.repo = repo;
+        this.streamService = streamService;
+        this.refreshNanos = refreshSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * คืน snapshot ของสินค้าปัจจุบัน โหลดจากฐานข้อมูลเฉพาะครั้งแรกหรือเมื่อหมดอายุ
+     */
+    public ProductCatalog catalog() {
+        Cached current = cached;
+        if (current == null || isStale(current)) {
+            current = reload(current);
+        }
+        return current.catalog();
     }
 
     /**
      * ดึงสินค้าทั้งหมด
      */
     public List<Product> all() {
-        return repo.findAll();
+        return catalog().products();
     }
 
     /**
      * ดึงสินค้าตามรหัส
      */
     public Product get(Long id) {
-        return repo.findById(id).orElse(null);
+        return catalog().get(id);
+    }
+
+    /**
+     * ดึงสินค้าตามรหัสสินค้าแบบสแกนหรือพิมพ์
+     */
+    public Product getByCode(String code) {
+        return catalog().byCode(code);
+    }
+
+    /**
+     * ดึงสินค้าในหมวดหมู่ที่ระบุ
+     */
+    public List<Product> byCategory(String category) {
+        return catalog().byCategory(category);
     }
 
     /**
-     * บันทึกหรืออัปเดตข้อมูลสินค้า
+     * ดึงสินค้าหลายรายการตามรหัส คืนเป็นแผนที่จากรหัสไปยังสินค้า (รหัสที่ไม่พบจะไม่อยู่ในแผนที่)
      */
-    public Product save(Product product) {
-        return repo.save(product);
+    public Map<Long, Product> getAllById(Collection<Long> ids) {
+        return catalog().getAll(ids);
     }
 
     /**
-     * ลบสินค้าตามรหัส
+     * บันทึกหรืออัปเดตข้อมูลสินค้า แล้วแทนที่ snapshot ในหน่วยความจำ
      */
-    public void delete(Long id) {
+    public synchronized Product save(Product product) {
+        Product saved = repo.save(product);
+        ProductCatalog next = catalog().with(++version, saved);
+        cached = new Cached(next, System.nanoTime());
+        streamService.changed(next, List.of(saved.getId()), true);
+        return saved;
+    }
+
+    /**
+     * ลบสินค้าตามรหัส แล้วแทนที่ snapshot ในหน่วยความจำ
+     */
+    public synchronized void delete(Long id) {
         repo.deleteById(id);
+        ProductCatalog next = catalog().without(++version, id);
+        cached = new Cached(next, System.nanoTime());
+        streamService.changed(next, List.of(id), true);
+    }
+
+    /**
+     * หักสต็อกใน snapshot ตามจำนวนที่ขาย (รหัสสินค้า -> จำนวน) หลังออเดอร์ถูก commit แล้ว
+     * สต็อกในฐานข้อมูลถูกหักด้วย UPDATE แบบมีเงื่อนไขไปก่อนหน้านี้ ค่านี้ใช้สำหรับแสดงผลและตรวจตะกร้าเท่านั้น
+     */
+    public synchronized void stockSold(Map<Long, Integer> quantities) {
+        Cached current = cached;
+        if (current != null) {
+            ProductCatalog next = current.catalog().withStockSold(++version, quantities);
+            cached = new Cached(next, current.loadedAt());
+            streamService.changed(next, quantities.keySet(), false);
+        }
+    }
+
+    /**
+     * โหลด snapshot ใหม่ โดยให้เธรดเดียวอ่านฐานข้อมูล ส่วนเธรดอื่นใช้ผลลัพธ์เดียวกัน
+     */
+    private synchronized Cached reload(Cached seen) {
+        Cached current = cached;
+        if (current != null && current != seen && !isStale(current)) {
+            return current;
+        }
+        current = new Cached(ProductCatalog.of(++version, repo.findAll()), System.nanoTime());
+        cached = current;
+        if (seen != null) {
+            streamService.reloaded(current.catalog());
+        }
+        return current;
+    }
+
+    private boolean isStale(Cached current) {
+        return refreshNanos > 0 && System.nanoTime() - current.loadedAt() > refreshNanos;
     }
 }
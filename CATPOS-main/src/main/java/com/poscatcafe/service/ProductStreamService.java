@@ -0,0 +1,209 @@
+package com.poscatcafe.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poscatcafe.model.Product;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ส่งการเปลี่ยนแปลงของสินค้า (ราคา สต็อก และสถานะขายได้) ไปยังเครื่องขายที่เปิดอยู่ผ่าน Server-Sent Events
+ * การเปลี่ยนแปลงที่เกิดติดกันจะถูกรวมเป็นข้อความเดียวต่อช่วง coalesce-ms โดยส่งเฉพาะค่าล่าสุดของแต่ละสินค้า
+ * ข้อความถูกแปลงเป็น JSON ครั้งเดียวแล้วส่งให้ทุกเครื่อง
+ */
+@Service
+public class ProductStreamService {
+    private static final Logger log = LoggerFactory.getLogger(ProductStreamService.class);
+    private static final String EVENT_NAME = "products";
+    private static final long HEARTBEAT_SECONDS = 25;
+
+    private final ObjectMapper objectMapper;
+    private final long coalesceMillis;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService worker;
+
+    // รหัสสินค้าที่รอส่ง -> ต้องส่งข้อมูลสินค้าเต็ม (true) หรือเฉพาะราคาและสต็อก (false)
+    private final Map<Long, Boolean> pending = new HashMap<>();
+    private ProductCatalog latest;
+    private boolean reloadPending;
+    private boolean flushScheduled;
+
+    /**
+     * การเปลี่ยนแปลงราคาและสต็อกของสินค้าหนึ่งรายการ
+     */
+    public record StockDelta(Long id, double price, int stock, boolean available) {
+        /**
+         * สร้างจากราคาและสต็อกปัจจุบันของสินค้า
+         */
+        public static StockDelta of(Product product) {
+            return new StockDelta(product.getId(), product.getPrice(), product.getStock(), product.getStock() > 0);
+        }
+    }
+
+    /**
+     * ข้อความหนึ่งครั้งที่ส่งให้เครื่องขาย: reload หมายถึงให้โหลดรายการสินค้าใหม่ทั้งหมด
+     */
+    public record Message(long version, List<StockDelta> changed, List<Product> upserted, List<Long> removed, boolean reload) {}
+
+    /**
+     * สร้างบริการส่งการเปลี่ยนแปลงสินค้าพร้อมเธรดพื้นหลังสำหรับรวมและส่งข้อความ
+     */
+    public ProductStreamService(
+            ObjectMapper objectMapper,
+            @Value("${pos.catalog.stream.coalesce-ms:250}") long coalesceMillis) {
+        this.objectMapper = objectMapper;
+        this.coalesceMillis = Math.max(0, coalesceMillis);
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "product-stream");
+            t.setDaemon(true);
+            return t;
+        });
+        worker.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * ลงทะเบียนเครื่องขายที่ต้องการรับการเปลี่ยนแปลง (หมดเวลาตาม spring.mvc.async.request-timeout แล้วเครื่องขายจะเชื่อมต่อใหม่)
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter();
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        try {
+            // ส่ง comment แรกเพื่อให้ส่วนหัวของคำตอบถึงเครื่องขายทันที
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException e) {
+            emitters.remove(emitter);
+        }
+        return emitter;
+    }
+
+    /**
+     * แจ้งว่าสินค้าตามรหัสเปลี่ยนใน snapshot ใหม่ full เป็น true เมื่อข้อมูลอื่นนอกจากราคาและสต็อกอาจเปลี่ยน
+     * (เพิ่ม แก้ไข หรือลบสินค้า) สินค้าที่ไม่อยู่ใน snapshot แล้วจะถูกส่งเป็นรายการที่ถูกลบ
+     */
+    public void changed(ProductCatalog catalog, Iterable<Long> ids, boolean full) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            latest = catalog;
+            for (Long id : ids) {
+                pending.merge(id, full, Boolean::logicalOr);
+            }
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * แจ้งว่า snapshot ถูกโหลดใหม่ทั้งก้อนจากฐานข้อมูล เครื่องขายต้องโหลดรายการสินค้าใหม่
+     */
+    public void reloaded(ProductCatalog catalog) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            latest = catalog;
+            reloadPending = true;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * หยุดเธรดพื้นหลังและปิดการเชื่อมต่อทั้งหมดเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        try {
+            worker.schedule(this::flush, coalesceMillis, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // ระบบกำลังปิด
+        }
+    }
+
+    /**
+     * สร้างข้อความจากการเปลี่ยนแปลงที่สะสมไว้ โดยใช้ค่าล่าสุดใน snapshot แล้วส่งให้ทุกเครื่อง
+     */
+    private void flush() {
+        Message message;
+        synchronized (this) {
+            flushScheduled = false;
+            if (reloadPending) {
+                message = new Message(latest.version(), List.of(), List.of(), List.of(), true);
+            } else {
+                List<StockDelta> changed = new ArrayList<>();
+                List<Product> upserted = new ArrayList<>();
+                List<Long> removed = new ArrayList<>();
+                pending.forEach((id, full) -> {
+                    Product product = latest.get(id);
+                    if (product == null) {
+                        removed.add(id);
+                    } else if (full) {
+                        upserted.add(product);
+                    } else {
+                        changed.add(StockDelta.of(product));
+                    }
+                });
+                message = new Message(latest.version(), changed, upserted, removed, false);
+            }
+            pending.clear();
+            reloadPending = false;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize the product change message (version {})", message.version(), e);
+            return;
+        }
+        String id = Long.toString(message.version());
+        broadcast(() -> SseEmitter.event().name(EVENT_NAME).id(id).data(json));
+    }
+
+    private void heartbeat() {
+        if (!emitters.isEmpty()) {
+            broadcast(() -> SseEmitter.event().comment("ping"));
+        }
+    }
+
+    /**
+     * ส่งเหตุการณ์ให้ทุกเครื่อง (สร้าง builder ใหม่ต่อเครื่องเพราะ builder ใช้ส่งได้ครั้งเดียว)
+     */
+    private void broadcast(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                // เครื่องขายตัดการเชื่อมต่อไปแล้ว
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
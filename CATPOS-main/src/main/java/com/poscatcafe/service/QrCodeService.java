@@ -0,0 +1,159 @@
+package com.poscatcafe.service;
+
+import org.springframework.stereotype.Service;
+
+import com.poscatcafe.model.Money;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * สร้าง QR พร้อมเพย์ตามมาตรฐาน EMVCo (มี CRC16) และเรนเดอร์เป็น PNG ขาวดำ 1 บิต
+ * ผลลัพธ์ถูกแคชแบบ LRU ตาม (หมายเลขพร้อมเพย์, ยอดเงิน) เพราะยอดเดิมมักถูกสแกนซ้ำในช่วงเวลาเดียวกัน
+ */
+@Service
+public class QrCodeService {
+    private static final String PROMPTPAY_AID = "A000000677010111";
+    private static final int TARGET_SIZE = 200;
+    private static final int QUIET_ZONE = 4; // ขอบว่าง 4 โมดูลตามมาตรฐาน QR แอปธนาคารหลายแอปอ่านไม่ได้หากแคบกว่านี้
+    private static final int CACHE_SIZE = 256;
+
+    private final Map<String, String> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * คืนภาพ QR พร้อมเพย์เป็น PNG ที่เข้ารหัส Base64 สำหรับยอดเงินที่ระบุ (สตางค์)
+     */
+    public String promptPayQrBase64(String promptPayId, long amount) {
+        String key = promptPayId + "|" + amount;
+        synchronized (cache) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String image = Base64.getEncoder().encodeToString(renderPng(promptPayPayload(promptPayId, amount)));
+        synchronized (cache) {
+            cache.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * สร้างข้อความ payload ของ QR พร้อมเพย์ตามมาตรฐาน EMVCo พร้อม CRC16 ท้ายข้อความ
+     * รองรับเบอร์โทรศัพท์ (10 หลัก) เลขประจำตัวประชาชน/ผู้เสียภาษี (13 หลัก) และ e-Wallet (15 หลัก) ยอดเงินเป็นสตางค์
+     */
+    public String promptPayPayload(String promptPayId, long amount) {
+        String digits = promptPayId.replaceAll("[^0-9]", "");
+        String account;
+        if (digits.length() >= 15) {
+            account = tlv("03", digits);
+        } else if (digits.length() >= 13) {
+            account = tlv("02", digits);
+        } else {
+            // เบอร์โทรศัพท์: ตัดเลข 0 นำหน้าแล้วเติมรหัสประเทศ 66 ให้ครบ 13 หลัก
+            String phone = "66" + digits.replaceFirst("^0", "");
+            account = tlv("01", "0".repeat(Math.max(0, 13 - phone.length())) + phone);
+        }
+
+        StringBuilder payload = new StringBuilder(96);
+        payload.append(tlv("00", "01"));
+        payload.append(tlv("01", amount > 0 ? "12" : "11"));
+        payload.append(tlv("29", tlv("00", PROMPTPAY_AID) + account));
+        payload.append(tlv("58", "TH"));
+        payload.append(tlv("53", "764"));
+        if (amount > 0) {
+            payload.append(tlv("54", Money.format(amount)));
+        }
+        payload.append("6304");
+        payload.append(String.format("%04X", crc16(payload)));
+        return payload.toString();
+    }
+
+    /**
+     * เรนเดอร์ข้อความเป็น PNG แบบ 1 บิตต่อพิกเซล โดยเขียนบิตลงบัฟเฟอร์ของภาพโดยตรงทีละแถว
+     */
+    byte[] renderPng(String payload) {
+        BitMatrix matrix;
+        try {
+            Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+            hints.put(EncodeHintType.MARGIN, QUIET_ZONE);
+            hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+            // ขนาด 0 ให้ได้เมทริกซ์ 1 พิกเซลต่อโมดูล แล้วค่อยขยายเองด้วยจำนวนเต็มเพื่อให้ขอบคม
+            matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0, hints);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("ไม่สามารถสร้าง QR code ได้", e);
+        }
+
+        int modules = matrix.getWidth();
+        int scale = Math.max(1, TARGET_SIZE / modules);
+        int size = modules * scale;
+
+        // TYPE_BYTE_BINARY ใช้พาเลต 0 = ดำ, 1 = ขาว และเก็บ 8 พิกเซลต่อไบต์
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = (size + 7) / 8;
+        byte[] row = new byte[stride];
+        for (int my = 0; my < modules; my++) {
+            Arrays.fill(row, (byte) 0xFF);
+            for (int mx = 0; mx < modules; mx++) {
+                if (matrix.get(mx, my)) {
+                    for (int x = mx * scale, end = x + scale; x < end; x++) {
+                        row[x >> 3] &= (byte) ~(0x80 >>> (x & 7));
+                    }
+                }
+            }
+            for (int y = my * scale, end = y + scale; y < end; y++) {
+                System.arraycopy(row, 0, pixels, y * stride, stride);
+            }
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+            ImageIO.write(image, "PNG", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ต่อข้อมูลแบบ Tag-Length-Value ตามรูปแบบ EMVCo
+     */
+    private static String tlv(String tag, String value) {
+        return tag + String.format("%02d", value.length()) + value;
+    }
+
+    /**
+     * คำนวณ CRC16/CCITT-FALSE (poly 0x1021, ค่าเริ่มต้น 0xFFFF) ตามที่ EMVCo กำหนด
+     */
+    static int crc16(CharSequence data) {
+        int crc = 0xFFFF;
+        for (int i = 0; i < data.length(); i++) {
+            crc ^= (data.charAt(i) & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+}
@@ -0,0 +1,90 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Order;
+import com.poscatcafe.repository.OrderRepository;
+import com.poscatcafe.repository.ReceiptArchiveRepository;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * เก็บใบเสร็จที่เรนเดอร์แล้วแบบบีบอัดไว้ในตาราง receipt_archive ตั้งแต่ตอนบันทึกออเดอร์ และให้พิมพ์ซ้ำจากคลังโดยตรง
+ * ใบเสร็จของออเดอร์เก่าที่ยังไม่มีในคลังจะเรนเดอร์จากออเดอร์ครั้งแรกที่ขอพิมพ์ซ้ำ แล้วเก็บเข้าคลังไว้
+ */
+@Service
+public class ReceiptArchiveService {
+    private final ReceiptArchiveRepository archiveRepo;
+    private final OrderRepository orderRepo;
+    private final ReceiptService receiptService;
+
+    /**
+     * สร้างบริการคลังใบเสร็จ
+     */
+    public ReceiptArchiveService(
+            ReceiptArchiveRepository archiveRepo, OrderRepository orderRepo, ReceiptService receiptService) {
+        this.archiveRepo = archiveRepo;
+        this.orderRepo = orderRepo;
+        this.receiptService = receiptService;
+    }
+
+    /**
+     * เรนเดอร์ใบเสร็จของออเดอร์ที่เพิ่งบันทึกและเก็บเข้าคลังใน transaction เดียวกับออเดอร์ คืน HTML ที่เรนเดอร์ได้
+     */
+    @Transactional
+    public String archive(Order order) {
+        String html = receiptService.generateReceiptHtml(order);
+        archiveRepo.append(order.getReceiptNo(), order.getId(), LocalDateTime.now(), gzip(html));
+        return html;
+    }
+
+    /**
+     * คืนใบเสร็จที่บีบอัดด้วย gzip ตามเลขที่ใบเสร็จ หรือว่างถ้าไม่พบทั้งในคลังและในออเดอร์
+     */
+    @Transactional
+    public Optional<byte[]> findCompressed(String receiptNo) {
+        Optional<byte[]> archived = archiveRepo.findHtmlGzip(receiptNo);
+        if (archived.isPresent()) {
+            return archived;
+        }
+        return orderRepo.findWithItemsByReceiptNo(receiptNo).map(order -> {
+            byte[] compressed = gzip(receiptService.generateReceiptHtml(order));
+            archiveRepo.append(receiptNo, order.getId(), LocalDateTime.now(), compressed);
+            return compressed;
+        });
+    }
+
+    /**
+     * บีบอัดข้อความ UTF-8 ด้วย gzip
+     */
+    static byte[] gzip(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 1024)) {
+            gz.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * คลายข้อมูล gzip กลับเป็นไบต์เดิม (สำหรับไคลเอนต์ที่ไม่รับ Content-Encoding: gzip)
+     */
+    public static byte[] gunzip(byte[] compressed) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
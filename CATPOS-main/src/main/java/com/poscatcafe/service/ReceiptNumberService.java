@@ -0,0 +1,257 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.repository.ReceiptSequenceRepository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ออกเลขที่ใบเสร็จแบบไม่ซ้ำและเรียงลำดับ รูปแบบ {prefix}{yyyyMMdd}{ลำดับ 6 หลัก} เช่น R20240625000123
+ * จองเลขจากตาราง receipt_sequence ครั้งละหนึ่งบล็อกด้วย UPDATE แบบอะตอมมิก แล้วแจกเลขในบล็อกจากหน่วยความจำ
+ * หลายอินสแตนซ์ใช้ตารางเดียวกันได้ (เลขอาจข้ามช่วงเมื่อรีสตาร์ต แต่ไม่ซ้ำกัน)
+ */
+@Service
+public class ReceiptNumberService {
+    private static final Logger log = LoggerFactory.getLogger(ReceiptNumberService.class);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final LocalTime PREFETCH_TIME = LocalTime.of(23, 55);
+
+    private final ReceiptSequenceRepository repo;
+    private final TransactionTemplate newTransaction;
+    private final ScheduledExecutorService refiller;
+    private final String prefix;
+    private final int blockSize;
+
+    private Block current;
+    private Block spare;
+    private boolean refilling;
+    private CompletableFuture<Void> reserving;
+
+    /**
+     * ช่วงเลขที่จองไว้แล้วของหนึ่งวัน
+     */
+    private static final class Block {
+        final LocalDate day;
+        final String dayText;
+        final long limit;
+        long next;
+
+        Block(LocalDate day, long start, long size) {
+            this.day = day;
+            this.dayText = day.format(DAY_FORMAT);
+            this.next = start;
+            this.limit = start + size;
+        }
+
+        boolean usableFor(LocalDate date) {
+            return day.equals(date) && next < limit;
+        }
+    }
+
+    /**
+     * สร้างบริการออกเลขใบเสร็จ การจองบล็อกใช้ transaction แยก เพื่อไม่ให้ถูกย้อนกลับพร้อมออเดอร์ที่ล้มเหลว
+     * (หากย้อนกลับได้ เลขในบล็อกที่แจกไปแล้วจะถูกจองซ้ำ)
+     */
+    public ReceiptNumberService(
+            ReceiptSequenceRepository repo,
+            PlatformTransactionManager transactionManager,
+            @Value("${pos.receipt.prefix:R}") String prefix,
+            @Value("${pos.receipt.block-size:500}") int blockSize) {
+        this.repo = repo;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.prefix = prefix;
+        this.blockSize = Math.max(2, blockSize);
+        this.refiller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "receipt-number-refill");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * คืนเลขที่ใบเสร็จถัดไปของวันนี้
+     */
+    public String next() {
+        return next(LocalDate.now());
+    }
+
+    /**
+     * คืนเลขที่ใบเสร็จถัดไปของวันที่ระบุ
+     * ปกติแจกจากบล็อกในหน่วยความจำและจองบล็อกถัดไปล่วงหน้าในเธรดพื้นหลัง
+     * จองเองแบบ synchronous เฉพาะเมื่อบล็อกหมดก่อนเติมทัน โดยให้จองได้ครั้งละหนึ่งเธรด
+     * (เธรดอื่นรอผล) เพื่อไม่ให้ทุกเธรดขอ connection เพิ่มพร้อมกันจน connection pool หมด
+     * ต้องเรียกนอก transaction: การจองใช้ connection ของตัวเอง หากผู้เรียกถือ connection อยู่แล้ว
+     * การชำระเงินพร้อมกันเท่าขนาด pool จะรอ connection กันเองจนหมดเวลา
+     */
+    public String next(LocalDate day) {
+        while (true) {
+            CompletableFuture<Void> inFlight;
+            CompletableFuture<Void> mine = null;
+            synchronized (this) {
+                if (spare != null && spare.day.isBefore(day)) {
+                    spare = null;
+                }
+                if (current == null || !current.usableFor(day)) {
+                    if (spare != null && spare.usableFor(day)) {
+                        current = spare;
+                        spare = null;
+                    }
+                }
+                if (current != null && current.usableFor(day)) {
+                    String receiptNo = take(current);
+                    refillIfLow(day);
+                    return receiptNo;
+                }
+                inFlight = reserving;
+                if (inFlight == null) {
+                    mine = new CompletableFuture<>();
+                    reserving = mine;
+                }
+            }
+
+            if (inFlight != null) {
+                // อีกเธรดกำลังจองบล็อกอยู่ รอแล้ววนกลับไปแจกจากบล็อกใหม่
+                inFlight.handle((result, error) -> null).join();
+                continue;
+            }
+
+            try {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    log.warn("Reserving a receipt block inside an open transaction; "
+                            + "take receipt numbers before the transaction starts");
+                }
+                Block block = reserveBlock(day);
+                synchronized (this) {
+                    String receiptNo = take(block);
+                    install(block);
+                    return receiptNo;
+                }
+            } finally {
+                synchronized (this) {
+                    reserving = null;
+                }
+                mine.complete(null);
+            }
+        }
+    }
+
+    /**
+     * จองบล็อกของวันนี้ทันทีที่ระบบพร้อม และตั้งเวลาจองบล็อกของวันถัดไปก่อนเที่ยงคืนทุกวัน
+     * เพื่อให้ออเดอร์แรกของวันไม่ต้องรอฐานข้อมูลภายใน transaction ของการชำระเงิน
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refiller.execute(() -> prefetch(LocalDate.now()));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextRun = now.toLocalDate().atTime(PREFETCH_TIME);
+        if (!nextRun.isAfter(now)) {
+            nextRun = nextRun.plusDays(1);
+        }
+        refiller.scheduleAtFixedRate(
+                () -> prefetch(LocalDate.now().plusDays(1)),
+                Duration.between(now, nextRun).toMillis(),
+                TimeUnit.DAYS.toMillis(1),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * หยุดเธรดเติมบล็อกเมื่อปิดระบบ
+     */
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+    }
+
+    /**
+     * แจกเลขถัดไปจากบล็อกและจัดรูปแบบเป็นเลขที่ใบเสร็จ
+     */
+    private String take(Block block) {
+        return prefix + block.dayText + String.format("%06d", block.next++);
+    }
+
+    /**
+     * เริ่มจองบล็อกสำรองในเธรดพื้นหลังเมื่อบล็อกปัจจุบันใช้ไปเกินครึ่ง (เรียกภายใต้ lock)
+     */
+    private void refillIfLow(LocalDate day) {
+        if (refilling || spare != null || current.limit - current.next > blockSize / 2) {
+            return;
+        }
+        refilling = true;
+        refiller.execute(() -> {
+            try {
+                prefetch(day);
+            } finally {
+                synchronized (this) {
+                    refilling = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * จองบล็อกของวันที่ระบุในเธรดพื้นหลังแล้วเก็บเป็นบล็อกปัจจุบันหรือบล็อกสำรอง
+     */
+    private void prefetch(LocalDate day) {
+        try {
+            Block block = reserveBlock(day);
+            synchronized (this) {
+                install(block);
+            }
+        } catch (RuntimeException e) {
+            // ครั้งถัดไปจะจองแบบ synchronous แทน แต่ถ้าล้มเหลวซ้ำ ๆ (เช่น ตาราง receipt_sequence เสีย) ต้องเห็นใน log
+            log.warn("Prefetching the receipt block for {} failed; the next sale will reserve it synchronously", day, e);
+        }
+    }
+
+    /**
+     * เก็บบล็อกที่จองได้เป็นบล็อกปัจจุบันถ้าบล็อกปัจจุบันใช้ไม่ได้แล้ว มิฉะนั้นเก็บเป็นบล็อกสำรอง (เรียกภายใต้ lock)
+     * บล็อกที่ไม่ได้ใช้จะถูกทิ้ง ทำให้เลขข้ามช่วงได้แต่ไม่ซ้ำกัน
+     */
+    private void install(Block block) {
+        if (current == null || (!current.usableFor(block.day) && !current.usableFor(LocalDate.now()))) {
+            current = block;
+        } else if (spare == null || spare.day.isBefore(block.day)) {
+            spare = block;
+        }
+    }
+
+    /**
+     * จองบล็อกเลขของวันจากฐานข้อมูลใน transaction แยก
+     */
+    private Block reserveBlock(LocalDate day) {
+        long start = newTransaction.execute(status -> advanceOrCreate(day));
+        return new Block(day, start, blockSize);
+    }
+
+    /**
+     * เลื่อนตัวนับของวันไปหนึ่งบล็อก คืนเลขแรกของบล็อก
+     * ใบเสร็จแรกของวันสร้างแถวด้วย INSERT ... ON CONFLICT DO NOTHING แล้วเลื่อนตัวนับซ้ำ
+     * หากอีกอินสแตนซ์สร้างแถวไปพร้อมกัน ทั้งสองฝั่งจะเลื่อนตัวนับของแถวเดียวกันต่อกัน จึงได้บล็อกที่ไม่ซ้ำกัน
+     */
+    private long advanceOrCreate(LocalDate day) {
+        if (repo.advance(day, blockSize) == 0) {
+            repo.createIfAbsent(day);
+            repo.advance(day, blockSize);
+        }
+        return repo.currentValue(day) - blockSize;
+    }
+}
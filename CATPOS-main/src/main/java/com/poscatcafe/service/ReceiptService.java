@@ -1,101 +1,88 @@
 package com.poscatcafe.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
 import com.poscatcafe.model.Order;
-import com.poscatcafe.model.OrderItem;
-import com.poscatcafe.model.StoreSetting;
 
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * สร้างใบเสร็จ HTML สำหรับการชำระเงิน
+ * แม่แบบถูกคอมไพล์ครั้งเดียวตอนเริ่มระบบ (เปลี่ยนเป็นของร้านเองได้ด้วย pos.receipt.template)
+ * และเรนเดอร์ลงบัฟเฟอร์ที่ใช้ซ้ำต่อเธรด
  */
 @Service
 public class ReceiptService {
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
     private final StoreSettingService storeSettingService;
+    private final ReceiptTemplate template;
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_SIZE));
+
+    // ข้อมูลร้านที่เติมค่าเริ่มต้นแล้ว คำนวณใหม่เมื่อการตั้งค่าร้านเปลี่ยน
+    private volatile ShopCache shopCache;
+
+    private record ShopCache(StoreSettingService.Snapshot settings, ReceiptTemplate.Shop shop) {}
 
     /**
-     * สร้างบริการใบเสร็จพร้อมเข้าถึงข้อมูลการตั้งค่าร้าน
+     * สร้างบริการใบเสร็จพร้อมเข้าถึงข้อมูลการตั้งค่าร้าน และคอมไพล์แม่แบบใบเสร็จ
      */
-    public ReceiptService(StoreSettingService storeSettingService) {
+    public ReceiptService(
+            StoreSettingService storeSettingService,
+            ResourceLoader resourceLoader,
+            @Value("${pos.receipt.template:classpath:receipt/receipt.html}") String templateLocation) {
         this.storeSettingService = storeSettingService;
+        this.template = ReceiptTemplate.compile(readTemplate(resourceLoader.getResource(templateLocation)));
     }
 
     /**
      * สร้างเนื้อหาใบเสร็จในรูปแบบ HTML ตามข้อมูลออเดอร์
      */
     public String generateReceiptHtml(Order order) {
-        StoreSetting settings = storeSettingService.get();
-        String shopName = settings.getShopName() != null ? settings.getShopName() : "🐱 Cat Café POS";
-        String shopAddress = settings.getAddress() != null ? settings.getAddress() : "123 Cat Street";
-        String shopPhone = settings.getPhone() != null ? settings.getPhone() : "02-123-4567";
-        String taxId = settings.getTaxId() != null ? settings.getTaxId() : "1234567890123";
-
-        StringBuilder html = new StringBuilder();
-        html.append("<div class='receipt'>");
-
-        // Header
-        html.append("<div class='receipt-header'>");
-        html.append("<div class='receipt-title'>").append(shopName).append("</div>");
-        html.append("<div>").append(shopAddress).append("</div>");
-        html.append("<div>โทร: ").append(shopPhone).append("</div>");
-        html.append("<div>เลขประจำตัวผู้เสียภาษี: ").append(taxId).append("</div>");
-        html.append("</div>");
-
-        // Order details
-        html.append("<div style='text-align: center; margin: 15px 0;'>");
-        html.append("<div><strong>ใบเสร็จรับเงิน</strong></div>");
-        html.append("<div>เลขที่: ").append(String.format("R%06d", order.getId())).append("</div>");
-        html.append("<div>วันที่: ").append(order.getOrderDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</div>");
-        if (order.getCustomerName() != null && !order.getCustomerName().isEmpty()) {
-            html.append("<div>ลูกค้า: ").append(order.getCustomerName()).append("</div>");
+        StringBuilder html = buffers.get();
+        html.setLength(0);
+        template.render(order, shop(), html);
+        String result = html.toString();
+        if (html.capacity() > MAX_RETAINED_BUFFER) {
+            // ไม่เก็บบัฟเฟอร์ขนาดใหญ่จากออเดอร์ที่มีรายการมากผิดปกติไว้กับเธรดตลอดไป
+            buffers.set(new StringBuilder(BUFFER_SIZE));
         }
-        html.append("</div>");
+        return result;
+    }
 
-        // Items
-        html.append("<div style='border-top: 1px dashed #666; padding-top: 10px;'>");
-        double subtotal = 0.0;
-        for (OrderItem item : order.getItems()) {
-            html.append("<div class='receipt-item'>");
-            html.append("<span>").append(item.getProductName()).append("</span>");
-            html.append("<span>").append(String.format("%.2f", item.getSubtotal())).append("</span>");
-            html.append("</div>");
-            html.append("<div class='receipt-item-details'>");
-            html.append("จำนวน ").append(item.getQuantity()).append(" x ").append(String.format("%.2f", item.getPrice()));
-            html.append("</div>");
-            subtotal += item.getSubtotal();
+    /**
+     * คืนข้อมูลร้านสำหรับหัวใบเสร็จ โดยใช้ค่าเริ่มต้นแทนช่องที่ยังไม่ได้ตั้งค่า
+     */
+    private ReceiptTemplate.Shop shop() {
+        StoreSettingService.Snapshot settings = storeSettingService.snapshot();
+        ShopCache cached = shopCache;
+        if (cached != null && cached.settings() == settings) {
+            return cached.shop();
         }
-        html.append("</div>");
-
-        // Totals
-        html.append("<div class='receipt-total'>");
-        html.append("<div class='receipt-item'>");
-        html.append("<span>รวมย่อย:</span>");
-        html.append("<span>฿").append(String.format("%.2f", subtotal)).append("</span>");
-        html.append("</div>");
+        ReceiptTemplate.Shop shop = new ReceiptTemplate.Shop(
+                settings.shopName() != null ? settings.shopName() : "🐱 Cat Café POS",
+                settings.address() != null ? settings.address() : "123 Cat Street",
+                settings.phone() != null ? settings.phone() : "02-123-4567",
+                settings.taxId() != null ? settings.taxId() : "1234567890123");
+        shopCache = new ShopCache(settings, shop);
+        return shop;
+    }
 
-        if (order.getDiscountAmount() != null && order.getDiscountAmount() > 0) {
-            html.append("<div class='receipt-item'>");
-            html.append("<span>ส่วนลด:</span>");
-            html.append("<span>-฿").append(String.format("%.2f", order.getDiscountAmount())).append("</span>");
-            html.append("</div>");
+    /**
+     * อ่านข้อความแม่แบบใบเสร็จจาก classpath หรือไฟล์ที่ร้านกำหนด
+     */
+    private static String readTemplate(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("ไม่สามารถอ่านแม่แบบใบเสร็จ " + resource.getDescription(), e);
         }
-
-        html.append("<div class='receipt-item' style='font-size: 1.2em; font-weight: bold;'>");
-        html.append("<span>รวมทั้งสิ้น:</span>");
-        html.append("<span>฿").append(String.format("%.2f", order.getTotalAmount())).append("</span>");
-        html.append("</div>");
-        html.append("</div>");
-
-        // Footer
-        html.append("<div style='text-align: center; margin-top: 15px; border-top: 1px dashed #666; padding-top: 10px;'>");
-        html.append("<div>*** ขอบคุณที่ใช้บริการ ***</div>");
-        html.append("<div>🐱 Cat Café POS System</div>");
-        html.append("</div>");
-
-        html.append("</div>");
-
-        return html.toString();
     }
 }
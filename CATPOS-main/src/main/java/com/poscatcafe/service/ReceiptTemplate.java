@@ -0,0 +1,251 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Money;
+import com.poscatcafe.model.Order;
+import com.poscatcafe.model.OrderItem;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * แม่แบบใบเสร็จที่คอมไพล์แล้ว แยกข้อความคงที่กับช่องข้อมูลไว้ล่วงหน้า ตอนเรนเดอร์จึงเขียนต่อท้ายบัฟเฟอร์อย่างเดียว
+ * ไวยากรณ์: {{ชื่อช่อง}} แทนค่า (ข้อความจากผู้ใช้ถูก escape เป็น HTML) และ {{#ส่วน}}...{{/ส่วน}} สำหรับ
+ * รายการสินค้า (items) หรือส่วนที่แสดงเมื่อมีข้อมูล (customer, discount)
+ */
+public final class ReceiptTemplate {
+
+    /**
+     * ช่องข้อมูลที่ใช้ได้ในแม่แบบ
+     */
+    enum Field {
+        SHOP_NAME("shopName"), SHOP_ADDRESS("shopAddress"), SHOP_PHONE("shopPhone"), TAX_ID("taxId"),
+        RECEIPT_NO("receiptNo"), ORDER_DATE("orderDate"), CUSTOMER_NAME("customerName"),
+        SUBTOTAL("subtotal"), DISCOUNT("discount"), TOTAL("total"),
+        ITEM_NAME("item.name"), ITEM_QUANTITY("item.quantity"), ITEM_PRICE("item.price"), ITEM_SUBTOTAL("item.subtotal");
+
+        final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        boolean perItem() {
+            return key.startsWith("item.");
+        }
+    }
+
+    /**
+     * ส่วนของแม่แบบที่แสดงซ้ำหรือแสดงตามเงื่อนไข
+     */
+    enum Section {
+        ITEMS("items"), CUSTOMER("customer"), DISCOUNT("discount");
+
+        final String key;
+
+        Section(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * หนึ่งชิ้นของแม่แบบ: ข้อความคงที่ ช่องข้อมูล หรือส่วนที่มีชิ้นย่อย (มีค่าเพียงอย่างเดียว)
+     */
+    private record Node(String text, Field field, Section section, Node[] children) {}
+
+    private final Node[] nodes;
+
+    private ReceiptTemplate(Node[] nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * ข้อมูลร้านที่ใช้ตอนเรนเดอร์ (ค่าว่างถูกแทนด้วยค่าเริ่มต้นแล้ว)
+     */
+    public record Shop(String name, String address, String phone, String taxId) {}
+
+    /**
+     * คอมไพล์ข้อความแม่แบบ ตรวจชื่อช่องและการปิดส่วนให้ครบ (แม่แบบผิดจะล้มตั้งแต่เริ่มระบบ ไม่ใช่ตอนชำระเงิน)
+     */
+    public static ReceiptTemplate compile(String source) {
+        List<Node> root = new ArrayList<>();
+        int end = parse(source, 0, null, false, root);
+        if (end != source.length()) {
+            throw new IllegalArgumentException("แม่แบบใบเสร็จไม่ถูกต้องที่ตำแหน่ง " + end);
+        }
+        return new ReceiptTemplate(root.toArray(new Node[0]));
+    }
+
+    /**
+     * อ่านแม่แบบจากตำแหน่ง pos จนจบข้อความหรือจนเจอแท็กปิดของ section คืนตำแหน่งหลังแท็กปิด
+     */
+    private static int parse(String source, int pos, Section open, boolean inItems, List<Node> out) {
+        while (pos < source.length()) {
+            int tag = source.indexOf("{{", pos);
+            if (tag < 0) {
+                out.add(new Node(source.substring(pos), null, null, null));
+                return source.length();
+            }
+            if (tag > pos) {
+                out.add(new Node(source.substring(pos, tag), null, null, null));
+            }
+            int close = source.indexOf("}}", tag);
+            if (close < 0) {
+                throw new IllegalArgumentException("แท็กในแม่แบบใบเสร็จไม่ได้ปิดที่ตำแหน่ง " + tag);
+            }
+            String name = source.substring(tag + 2, close).trim();
+            pos = close + 2;
+            if (name.startsWith("#")) {
+                Section section = section(name.substring(1).trim());
+                List<Node> children = new ArrayList<>();
+                pos = parse(source, pos, section, inItems || section == Section.ITEMS, children);
+                out.add(new Node(null, null, section, children.toArray(new Node[0])));
+            } else if (name.startsWith("/")) {
+                if (open == null || !open.key.equals(name.substring(1).trim())) {
+                    throw new IllegalArgumentException("แท็กปิด {{" + name + "}} ไม่ตรงกับส่วนที่เปิดไว้");
+                }
+                return pos;
+            } else {
+                Field field = field(name);
+                if (field.perItem() && !inItems) {
+                    throw new IllegalArgumentException("ใช้ช่อง " + name + " ได้เฉพาะใน {{#items}}");
+                }
+                out.add(new Node(null, field, null, null));
+            }
+        }
+        if (open != null) {
+            throw new IllegalArgumentException("ไม่พบแท็กปิด {{/" + open.key + "}} ในแม่แบบใบเสร็จ");
+        }
+        return pos;
+    }
+
+    private static Field field(String key) {
+        for (Field field : Field.values()) {
+            if (field.key.equals(key)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("ไม่รู้จักช่อง {{" + key + "}} ในแม่แบบใบเสร็จ");
+    }
+
+    private static Section section(String key) {
+        for (Section section : Section.values()) {
+            if (section.key.equals(key)) {
+                return section;
+            }
+        }
+        throw new IllegalArgumentException("ไม่รู้จักส่วน {{#" + key + "}} ในแม่แบบใบเสร็จ");
+    }
+
+    /**
+     * เรนเดอร์ใบเสร็จของออเดอร์ต่อท้ายบัฟเฟอร์ที่ส่งมา
+     */
+    public void render(Order order, Shop shop, StringBuilder out) {
+        long subtotal = 0;
+        for (OrderItem item : order.getItems()) {
+            subtotal += item.getSubtotal();
+        }
+        renderNodes(nodes, order, shop, subtotal, null, out);
+    }
+
+    private static void renderNodes(Node[] nodes, Order order, Shop shop, long subtotal, OrderItem item, StringBuilder out) {
+        for (Node node : nodes) {
+            if (node.text != null) {
+                out.append(node.text);
+            } else if (node.field != null) {
+                appendField(node.field, order, shop, subtotal, item, out);
+            } else {
+                switch (node.section) {
+                    case ITEMS -> {
+                        for (OrderItem line : order.getItems()) {
+                            renderNodes(node.children, order, shop, subtotal, line, out);
+                        }
+                    }
+                    case CUSTOMER -> {
+                        if (order.getCustomerName() != null && !order.getCustomerName().isEmpty()) {
+                            renderNodes(node.children, order, shop, subtotal, item, out);
+                        }
+                    }
+                    case DISCOUNT -> {
+                        if (order.getDiscountAmount() > 0) {
+                            renderNodes(node.children, order, shop, subtotal, item, out);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void appendField(Field field, Order order, Shop shop, long subtotal, OrderItem item, StringBuilder out) {
+        switch (field) {
+            case SHOP_NAME -> appendEscaped(out, shop.name());
+            case SHOP_ADDRESS -> appendEscaped(out, shop.address());
+            case SHOP_PHONE -> appendEscaped(out, shop.phone());
+            case TAX_ID -> appendEscaped(out, shop.taxId());
+            case RECEIPT_NO -> {
+                if (order.getReceiptNo() != null) {
+                    appendEscaped(out, order.getReceiptNo());
+                } else {
+                    out.append('R');
+                    appendPadded(out, order.getId() != null ? order.getId() : 0, 6);
+                }
+            }
+            case ORDER_DATE -> appendDate(out, order.getOrderDate());
+            case CUSTOMER_NAME -> appendEscaped(out, order.getCustomerName());
+            case SUBTOTAL -> Money.append(out, subtotal);
+            case DISCOUNT -> Money.append(out, order.getDiscountAmount());
+            case TOTAL -> Money.append(out, order.getTotalAmount());
+            case ITEM_NAME -> appendEscaped(out, item.getProductName());
+            case ITEM_QUANTITY -> out.append(item.getQuantity());
+            case ITEM_PRICE -> Money.append(out, item.getPrice());
+            case ITEM_SUBTOTAL -> Money.append(out, item.getSubtotal());
+        }
+    }
+
+    /**
+     * เขียนวันที่รูปแบบ dd/MM/yyyy HH:mm
+     */
+    static void appendDate(StringBuilder out, LocalDateTime date) {
+        if (date == null) {
+            return;
+        }
+        appendPadded(out, date.getDayOfMonth(), 2);
+        out.append('/');
+        appendPadded(out, date.getMonthValue(), 2);
+        out.append('/');
+        appendPadded(out, date.getYear(), 4);
+        out.append(' ');
+        appendPadded(out, date.getHour(), 2);
+        out.append(':');
+        appendPadded(out, date.getMinute(), 2);
+    }
+
+    private static void appendPadded(StringBuilder out, long value, int width) {
+        for (long limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                out.append('0');
+            }
+        }
+        out.append(value);
+    }
+
+    /**
+     * เขียนข้อความโดย escape อักขระพิเศษของ HTML
+     */
+    static void appendEscaped(StringBuilder out, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -1,89 +1,126 @@
 package com.poscatcafe.service;
 
-import com.poscatcafe.model.Order;
-import com.poscatcafe.model.OrderItem;
-import com.poscatcafe.model.Product;
-import com.poscatcafe.repository.OrderRepository;
+import com.poscatcafe.model.DailySalesSummary;
+import com.poscatcafe.model.Money;
+import com.poscatcafe.repository.DailySalesSummaryRepository;
 import com.poscatcafe.repository.ProductRepository;
+import com.poscatcafe.repository.ProductSalesSummaryRepository;
+import com.poscatcafe.repository.SalesReportRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.ZoneId;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 @Service
 public class ReportService {
 
     @Autowired
-    private OrderRepository orderRepository;
+    private DailySalesSummaryRepository dailySalesSummaryRepository;
+
+    @Autowired
+    private ProductSalesSummaryRepository productSalesSummaryRepository;
 
     @Autowired
     private ProductRepository productRepository;
 
-    public Map<String, Object> getReportsData() {
-        Map<String, Object> reportsData = new LinkedHashMap<>();
+    @Autowired
+    private SalesRollupService salesRollupService;
 
-        List<Order> allOrders = orderRepository.findAll();
-        List<Product> allProducts = productRepository.findAll();
+    @Autowired
+    private SalesReportRepository salesReportRepository;
 
-        // Calculate total sales, total orders, total products
-        double totalSales = allOrders.stream()
-                .mapToDouble(Order::getTotalAmount)
-                .sum();
-        long totalOrders = allOrders.size();
-        long totalProducts = allProducts.size();
+    public Map<String, Object> getReportsData() {
+        Map<String, Object> reportsData = new LinkedHashMap<>();
 
-        reportsData.put("totalSales", totalSales);
+        // Read pre-aggregated rollups: one row per day and one row per product
+        List<DailySalesSummary> days = dailySalesSummaryRepository.findAllByOrderBySalesDateAsc();
+
+        long totalSales = 0;
+        long totalOrders = 0;
+        List<String> salesLabels = new ArrayList<>(days.size());
+        List<BigDecimal> salesData = new ArrayList<>(days.size());
+        for (DailySalesSummary day : days) {
+            totalSales += day.getTotalSales();
+            totalOrders += day.getOrderCount();
+            salesLabels.add(day.getSalesDate().toString());
+            salesData.add(Money.toDecimal(day.getTotalSales()));
+        }
+        long totalProducts = productRepository.count();
+
+        reportsData.put("totalSales", Money.toDecimal(totalSales));
         reportsData.put("totalOrders", totalOrders);
         reportsData.put("totalProducts", totalProducts);
 
-        // Prepare sales data for chart (daily sales)
-        Map<LocalDate, Double> dailySales = allOrders.stream()
-                .collect(Collectors.groupingBy(
-                        order -> order.getOrderDate().atZone(ZoneId.systemDefault()).toLocalDate(),
-                        Collectors.summingDouble(Order::getTotalAmount)
-                ));
-
-        List<String> salesLabels = dailySales.keySet().stream()
-                .sorted()
-                .map(LocalDate::toString)
-                .collect(Collectors.toList());
-        List<Double> salesData = dailySales.keySet().stream()
-                .sorted()
-                .map(dailySales::get)
-                .collect(Collectors.toList());
+        Map<String, Object> salesChartData = new LinkedHashMap<>();
+        salesChartData.put("labels", salesLabels);
+        salesChartData.put("data", salesData);
+        reportsData.put("salesData", salesChartData);
+
+        // Quantity sold per product name, sorted by name
+        Map<String, Long> productSales = new TreeMap<>();
+        for (var row : productSalesSummaryRepository.findAllWithProductName()) {
+            productSales.merge(row.getName(), row.getQuantity(), Long::sum);
+        }
+
+        Map<String, Object> productSalesChartData = new LinkedHashMap<>();
+        productSalesChartData.put("labels", new ArrayList<>(productSales.keySet()));
+        productSalesChartData.put("data", new ArrayList<>(productSales.values()));
+        reportsData.put("productSalesData", productSalesChartData);
+
+        return reportsData;
+    }
+
+    // Same response shape as getReportsData(), limited to a date range and grouped by the database
+    public Map<String, Object> getReportsData(LocalDate start, LocalDate end) {
+        Map<String, Object> reportsData = new LinkedHashMap<>();
+        var from = start.atStartOfDay();
+        var to = end.atTime(LocalTime.MAX);
+
+        List<SalesReportRepository.DailySales> days = salesReportRepository.sumSalesByDay(from, to);
+
+        long totalSales = 0;
+        long totalOrders = 0;
+        List<String> salesLabels = new ArrayList<>(days.size());
+        List<BigDecimal> salesData = new ArrayList<>(days.size());
+        for (var day : days) {
+            long total = Money.ofDecimal(day.getTotal());
+            totalSales += total;
+            totalOrders += day.getOrders();
+            salesLabels.add(day.getDay().toString());
+            salesData.add(Money.toDecimal(total));
+        }
+
+        reportsData.put("totalSales", Money.toDecimal(totalSales));
+        reportsData.put("totalOrders", totalOrders);
+        reportsData.put("totalProducts", productRepository.count());
 
         Map<String, Object> salesChartData = new LinkedHashMap<>();
         salesChartData.put("labels", salesLabels);
         salesChartData.put("data", salesData);
         reportsData.put("salesData", salesChartData);
 
-        // Prepare product sales data for chart (quantity sold per product)
-        Map<String, Long> productSales = allOrders.stream()
-                .flatMap(order -> order.getItems().stream())
-                .collect(Collectors.groupingBy(
-                        orderItem -> orderItem.getProduct().getName(),
-                        Collectors.summingLong(OrderItem::getQuantity)
-                ));
-
-        List<String> productSalesLabels = productSales.keySet().stream()
-                .sorted()
-                .collect(Collectors.toList());
-        List<Long> productSalesData = productSales.keySet().stream()
-                .sorted()
-                .map(productSales::get)
-                .collect(Collectors.toList());
+        Map<String, Long> productSales = new TreeMap<>();
+        for (var row : salesReportRepository.sumSalesByProduct(from, to)) {
+            productSales.merge(row.getName(), row.getQuantity(), Long::sum);
+        }
 
         Map<String, Object> productSalesChartData = new LinkedHashMap<>();
-        productSalesChartData.put("labels", productSalesLabels);
-        productSalesChartData.put("data", productSalesData);
+        productSalesChartData.put("labels", new ArrayList<>(productSales.keySet()));
+        productSalesChartData.put("data", new ArrayList<>(productSales.values()));
         reportsData.put("productSalesData", productSalesChartData);
 
         return reportsData;
     }
+
+    public void rebuildRollups() {
+        salesRollupService.rebuild();
+    }
 }
@@ -0,0 +1,90 @@
+package com.poscatcafe.service;
+
+import com.poscatcafe.model.Money;
+import com.poscatcafe.model.Order;
+import com.poscatcafe.model.OrderItem;
+import com.poscatcafe.repository.DailySalesSummaryRepository;
+import com.poscatcafe.repository.OrderRepository;
+import com.poscatcafe.repository.ProductSalesSummaryRepository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ดูแลตารางสรุปยอดขายรายวันและรายสินค้า ให้รายงานอ่านได้โดยไม่ต้องโหลดออเดอร์ทั้งหมด
+ */
+@Service
+public class SalesRollupService {
+    private final DailySalesSummaryRepository dailyRepo;
+    private final ProductSalesSummaryRepository productRepo;
+    private final OrderRepository orderRepo;
+
+    /**
+     * สร้างบริการสรุปยอดขายพร้อมคลังข้อมูลที่เกี่ยวข้อง
+     */
+    public SalesRollupService(
+            DailySalesSummaryRepository dailyRepo,
+            ProductSalesSummaryRepository productRepo,
+            OrderRepository orderRepo) {
+        this.dailyRepo = dailyRepo;
+        this.productRepo = productRepo;
+        this.orderRepo = orderRepo;
+    }
+
+    /**
+     * บวกยอดของออเดอร์ที่เพิ่งบันทึกเข้ากับตารางสรุป (ทำงานใน transaction เดียวกับการบันทึกออเดอร์)
+     */
+    @Transactional
+    public void record(Order order) {
+        LocalDate day = order.getOrderDate().toLocalDate();
+        BigDecimal amount = Money.toDecimal(order.getTotalAmount());
+        if (dailyRepo.increment(day, amount, 1) == 0) {
+            dailyRepo.createIfAbsent(day);
+            dailyRepo.increment(day, amount, 1);
+        }
+
+        // รวมรายการสินค้าซ้ำในออเดอร์เดียวกันก่อน เพื่อให้อัปเดตสินค้าละครั้ง (เรียงตามรหัสเพื่อ lock แถวในลำดับเดียวกัน)
+        Map<Long, Long> quantities = new TreeMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProduct().getId(), (long) item.getQuantity(), Long::sum);
+        }
+        quantities.forEach((productId, quantity) -> {
+            if (productRepo.increment(productId, quantity) == 0) {
+                productRepo.createIfAbsent(productId);
+                productRepo.increment(productId, quantity);
+            }
+        });
+    }
+
+    /**
+     * ล้างและคำนวณตารางสรุปใหม่ทั้งหมดจากข้อมูล orders/order_item ฝั่งฐานข้อมูล
+     * ล็อกตารางสรุปเป็นคำสั่งแรกของ transaction ออเดอร์ที่ commit ก่อนได้ล็อกจึงถูกนับจาก orders
+     * ส่วนออเดอร์ที่ยังไม่ commit จะบวกยอดของตัวเองหลังคำนวณใหม่เสร็จ ไม่มีออเดอร์ถูกนับซ้ำหรือหายไป
+     * (ใช้ได้ทั้งเมื่อมีหลายอินสแตนซ์ เพราะล็อกอยู่ที่ฐานข้อมูล)
+     */
+    @Transactional
+    public void rebuild() {
+        dailyRepo.lockForRebuild();
+        dailyRepo.deleteAllInBatch();
+        productRepo.deleteAllInBatch();
+        dailyRepo.rebuildFromOrders();
+        productRepo.rebuildFromOrderItems();
+    }
+
+    /**
+     * เติมข้อมูลตารางสรุปครั้งแรกเมื่อเริ่มระบบ หากมีออเดอร์อยู่แล้วแต่ตารางสรุปยังว่าง
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (dailyRepo.count() == 0 && orderRepo.count() > 0) {
+            rebuild();
+        }
+    }
+}
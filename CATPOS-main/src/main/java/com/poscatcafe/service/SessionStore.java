@@ -0,0 +1,24 @@
+package com.poscatcafe.service;
+
+/**
+ * ที่เก็บเซสชันของผู้ใช้ที่เข้าสู่ระบบ เลือกการทำงานได้ด้วยค่า pos.session.store
+ * (memory = เก็บในหน่วยความจำของเครื่องนี้, jdbc = เก็บในฐานข้อมูลเพื่อใช้ร่วมกันหลายเครื่องและไม่หายเมื่อรีสตาร์ต)
+ * เซสชันหมดอายุเมื่อไม่ถูกใช้งานนานเกิน pos.session.timeout-minutes
+ */
+public interface SessionStore {
+
+    /**
+     * บันทึกเซสชันใหม่ของพนักงาน
+     */
+    void create(String token, Long employeeId);
+
+    /**
+     * ตรวจสอบโทเคนและต่ออายุเซสชัน คืนรหัสพนักงานเจ้าของเซสชัน หรือ null ถ้าไม่พบหรือหมดอายุแล้ว
+     */
+    Long touch(String token);
+
+    /**
+     * ยกเลิกเซสชันตามโทเคน
+     */
+    void remove(String token);
+}
@@ -3,26 +3,117 @@ package com.poscatcafe.service;
 import com.poscatcafe.model.StoreSetting;
 import com.poscatcafe.repository.StoreSettingRepository;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
  * จัดการข้อมูลการตั้งค่าร้าน เช่น ชื่อร้านและข้อมูลติดต่อ
+ * เก็บค่าล่าสุดไว้ในหน่วยความจำเป็น snapshot ที่แก้ไขไม่ได้ เพื่อให้ขั้นตอนชำระเงินไม่ต้องอ่านฐานข้อมูล
  */
 @Service
 public class StoreSettingService {
     private final StoreSettingRepository repo;
+    private final long refreshNanos;
+
+    private volatile Cached cached;
+
+    /**
+     * ข้อมูลการตั้งค่าร้าน ณ เวลาที่โหลด ใช้ร่วมกันได้ระหว่างหลายเธรดเพราะแก้ไขไม่ได้
+     */
+    public record Snapshot(String shopName, String address, String phone, String taxId, String promptpayId) {
+        static Snapshot of(StoreSetting setting) {
+            return new Snapshot(
+                    setting.getShopName(),
+                    setting.getAddress(),
+                    setting.getPhone(),
+                    setting.getTaxId(),
+                    setting.getPromptpayId());
+        }
+
+        /**
+         * สร้าง entity ใหม่จาก snapshot สำหรับส่งออกทาง API
+         */
+        public StoreSetting toEntity() {
+            StoreSetting setting = new StoreSetting();
+            setting.setShopName(shopName);
+            setting.setAddress(address);
+            setting.setPhone(phone);
+            setting.setTaxId(taxId);
+            setting.setPromptpayId(promptpayId);
+            return setting;
+        }
+    }
+
+    private record Cached(Snapshot snapshot, long loadedAt, long version) {}
 
     /**
      * สร้างบริการจัดการการตั้งค่าร้านด้วยคลังข้อมูล
+     * หาก refresh-seconds มากกว่า 0 จะโหลดค่าใหม่จากฐานข้อมูลเมื่อ snapshot เก่ากว่าที่กำหนด
+     * (ใช้เมื่อรันหลายเครื่องและอีกเครื่องอาจแก้ไขการตั้งค่า)
      */
-    public StoreSettingService(StoreSettingRepository repo) {
+    public StoreSettingService(
+            StoreSettingRepository repo,
+            @Value("${pos.settings.refresh-seconds:0}") long refreshSeconds) {
         this.repo = repo;
+        this.refreshNanos = refreshSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * คืน snapshot ของการตั้งค่าร้านจากหน่วยความจำ โหลดจากฐานข้อมูลเฉพาะครั้งแรกหรือเมื่อหมดอายุ
+     */
+    public Snapshot snapshot() {
+        Cached current = cached;
+        if (current == null || isStale(current)) {
+            current = reload(current);
+        }
+        return current.snapshot();
+    }
+
+    /**
+     * คืนเวอร์ชันของการตั้งค่าร้าน เพิ่มขึ้นเมื่อบันทึกหรือเมื่อโหลดใหม่แล้วพบว่าค่าเปลี่ยน
+     */
+    public long version() {
+        snapshot();
+        return cached.version();
     }
 
     /**
      * ดึงข้อมูลการตั้งค่าร้าน หากไม่พบจะสร้างข้อมูลเริ่มต้น
      */
     public StoreSetting get() {
+        return snapshot().toEntity();
+    }
+
+    /**
+     * บันทึกหรืออัปเดตข้อมูลการตั้งค่าร้านโดยใช้รหัสคงที่ แล้วแทนที่ snapshot ในหน่วยความจำ
+     */
+    public synchronized StoreSetting save(StoreSetting setting) {
+        setting.setId(1L);
+        StoreSetting saved = repo.save(setting);
+        Cached current = cached;
+        cached = new Cached(Snapshot.of(saved), System.nanoTime(), current != null ? current.version() + 1 : 1);
+        return saved;
+    }
+
+    /**
+     * โหลด snapshot ใหม่ โดยให้เธรดเดียวอ่านฐานข้อมูล ส่วนเธรดอื่นใช้ผลลัพธ์เดียวกัน
+     */
+    private synchronized Cached reload(Cached seen) {
+        Cached current = cached;
+        if (current != null && current != seen && !isStale(current)) {
+            return current;
+        }
+        Snapshot loaded = Snapshot.of(loadOrCreate());
+        long version = current == null ? 1 : loaded.equals(current.snapshot()) ? current.version() : current.version() + 1;
+        current = new Cached(loaded, System.nanoTime(), version);
+        cached = current;
+        return current;
+    }
+
+    /**
+     * อ่านการตั้งค่าจากฐานข้อมูล หากไม่พบจะสร้างข้อมูลเริ่มต้น
+     */
+    private StoreSetting loadOrCreate() {
         return repo.findById(1L)
                 .orElseGet(
                         () -> {
@@ -36,11 +127,7 @@ public class StoreSettingService {
                         });
     }
 
-    /**
-     * บันทึกหรืออัปเดตข้อมูลการตั้งค่าร้านโดยใช้รหัสคงที่
-     */
-    public StoreSetting save(StoreSetting setting) {
-        setting.setId(1L);
-        return repo.save(setting);
+    private boolean isStale(Cached current) {
+        return refreshNanos > 0 && System.nanoTime() - current.loadedAt() > refreshNanos;
     }
 }
@@ -9,6 +9,7 @@ const API = {
     auth: '/api/auth',
     loyalty: '/api/loyalty',
     cart: '/api/cart',
+    carts: '/api/carts',
     payment: '/api/payment',
     uploads: '/api/uploads'
 };
@@ -26,6 +27,49 @@ const showModal = (id) => $(`#${id}`)?.classList.add('show');
 const closeModal = (id) => $(`#${id}`)?.classList.remove('show');
 const toast = (msg) => alert(msg);
 
+// GET JSON that the server tags with an ETag: the browser revalidates its cached copy with If-None-Match,
+// so an unchanged list comes back as an empty 304 and is read from the HTTP cache
+const fetchJsonRevalidated = async (url, fallback) => {
+    const r = await fetch(url, { cache: 'no-cache' });
+    return r.ok ? r.json() : fallback;
+};
+
+// The product list's ETag ignores sales, so its cached copy may carry old stock;
+// the current price and stock of every product come from the much smaller /stock list
+const fetchProducts = async (fallback) => {
+    const [list, stock] = await Promise.all([
+        fetchJsonRevalidated(API.products, fallback),
+        fetchJsonRevalidated(`${API.products}/stock`, [])
+    ]);
+    const current = new Map(stock.map(s => [s.id, s]));
+    for (const p of list) {
+        const s = current.get(p.id);
+        if (s) {
+            p.price = s.price;
+            p.stock = s.stock;
+        }
+    }
+    return list;
+};
+
+// <img> attributes for a product picture: the small thumbnail first, then the original upload, then the placeholder
+const productImageAttrs = (p, placeholder) => {
+    const src = p.thumbnailUrl || p.imageUrl || placeholder;
+    const fallback = p.imageUrl && p.imageUrl !== src ? ` data-fallback="${esc(p.imageUrl)}"` : '';
+    return `src="${esc(src)}"${fallback} data-placeholder="${esc(placeholder)}" onerror="imageFallback(this)"`;
+};
+
+function imageFallback(img) {
+    const next = img.dataset.fallback;
+    if (next) {
+        delete img.dataset.fallback;
+        img.src = next;
+    } else {
+        img.onerror = null;
+        img.src = img.dataset.placeholder;
+    }
+}
+
 document.addEventListener('DOMContentLoaded', () => {
     $('#currentDate').textContent = new Date().toLocaleDateString('th-TH', { year: 'numeric', month: '2-digit', day: '2-digit' });
     
@@ -111,11 +155,19 @@ async function logout() {
 // Add Authorization header to all API requests
 const originalFetch = window.fetch;
 window.fetch = function(url, options = {}) {
-    if (url.startsWith('/api/') && sessionToken && !url.includes('/auth/login') && !url.includes('/auth/validate')) {
+    const isAuthCall = url.includes('/auth/login') || url.includes('/auth/validate');
+    if (url.startsWith('/api/') && sessionToken && !isAuthCall) {
         options.headers = {
             ...options.headers,
             'Authorization': sessionToken
         };
     }
-    return originalFetch(url, options);
+    return originalFetch(url, options).then(response => {
+        // The server rejects API calls without a valid session; send the user back to login
+        if (response.status === 401 && url.startsWith('/api/') && !isAuthCall) {
+            clearAuthData();
+            redirectToLogin();
+        }
+        return response;
+    });
 };
\ No newline at end of file
@@ -43,8 +43,7 @@ function handleGlobalSearch(rawTerm) {
 // --- Customers ---
 async function loadCustomers() {
     try {
-        const r = await fetch(API.customers, { cache: 'no-store' });
-        customers = r.ok ? await r.json() : [];
+        customers = await fetchJsonRevalidated(API.customers, []);
         renderCustomersTable();
     } catch (err) { console.error('Error loading customers:', err); }
 }
@@ -7,6 +7,9 @@ let selectedCustomer = null;
 let selectedCustomerDetail = null;
 let useLoyaltyCoupon = false;
 let currentCartSummary = null;
+let cartId = null; // server-held cart (/api/carts) mirroring `cart`
+let cartCustomerKey = ''; // customer/coupon query last applied to the server cart
+let cartSync = Promise.resolve();
 let customerSearchTimer = null;
 let latestCustomerSearchResults = [];
 
@@ -35,6 +38,7 @@ function initializePosPage() {
         loadProducts().then(() => {
             bindPosActions();
             updateSearchPlaceholder('pos');
+            watchProductChanges();
         });
     });
 }
@@ -92,21 +96,104 @@ window.cancelPaymentFlow = cancelPaymentFlow; // Make it globally accessible for
 // --- Settings (re-fetch for each page if needed, or rely on common.js cache) ---
 async function loadSettings() {
     try {
-        const r = await fetch(API.settings);
-        settingsCache = r.ok ? await r.json() : {};
+        settingsCache = await fetchJsonRevalidated(API.settings, {});
     } catch (err) { console.error('Error loading settings:', err); }
 }
 
 // --- Products ---
 async function loadProducts() {
     try {
-        const r = await fetch(API.products);
-        products = r.ok ? await r.json() : [];
+        products = await fetchProducts([]);
         renderCategories();
         renderProductsGrid(products);
     } catch (err) { console.error('Error loading products:', err); }
 }
 
+// Reloads the list without resetting the selected category tab or search
+async function refreshProducts() {
+    try {
+        products = await fetchProducts(products);
+        filterProducts($('#searchInput').value.trim().toLowerCase());
+    } catch (err) { console.error('Error refreshing products:', err); }
+}
+
+// --- Live product changes (Server-Sent Events from /api/products/stream) ---
+// Read with fetch instead of EventSource so the session's Authorization header is sent.
+// The server ends the stream at its async timeout; after any reconnect the list is refreshed
+// (a 304 when nothing changed) to pick up changes made while disconnected.
+async function watchProductChanges() {
+    let reconnecting = false;
+    for (;;) {
+        let failed = false;
+        try {
+            const r = await fetch(`${API.products}/stream`, { headers: { 'Accept': 'text/event-stream' }, cache: 'no-store' });
+            if (!r.ok || !r.body) throw new Error(`HTTP ${r.status}`);
+            if (reconnecting) await refreshProducts();
+            reconnecting = true;
+            const reader = r.body.pipeThrough(new TextDecoderStream()).getReader();
+            let buffer = '';
+            for (;;) {
+                const { value, done } = await reader.read();
+                if (done) break;
+                buffer += value;
+                let end;
+                while ((end = buffer.indexOf('\n\n')) >= 0) {
+                    const data = buffer.slice(0, end).split('\n')
+                        .filter(line => line.startsWith('data:'))
+                        .map(line => line.slice(5))
+                        .join('\n');
+                    buffer = buffer.slice(end + 2);
+                    if (data) applyProductChanges(JSON.parse(data));
+                }
+            }
+        } catch (err) {
+            console.warn('Product change stream disconnected:', err);
+            failed = true;
+        }
+        await new Promise(resolve => setTimeout(resolve, failed ? 5000 : 500));
+    }
+}
+
+// Applies one coalesced message: price/stock deltas are patched into the cards in place,
+// added/edited/removed products re-render the filtered grid
+function applyProductChanges(msg) {
+    if (msg.reload) return refreshProducts();
+    let relist = msg.upserted.length > 0 || msg.removed.length > 0;
+    if (msg.removed.length) {
+        products = products.filter(p => !msg.removed.includes(p.id));
+    }
+    for (const updated of msg.upserted) {
+        const i = products.findIndex(p => p.id === updated.id);
+        if (i >= 0) products[i] = updated; else products.push(updated);
+    }
+    for (const delta of msg.changed) {
+        const p = products.find(x => x.id === delta.id);
+        if (!p) continue;
+        p.price = delta.price;
+        p.stock = delta.stock;
+        const card = relist ? null : $(`.product-card[data-id="${delta.id}"]`);
+        if (card) {
+            card.querySelector('.product-price').textContent = `฿${fmtBaht(delta.price)}`;
+            card.querySelector('.product-stock').textContent = `คงเหลือ: ${delta.stock}`;
+            card.classList.toggle('sold-out', !delta.available);
+        }
+    }
+    if (relist) {
+        filterProducts($('#searchInput').value.trim().toLowerCase());
+    }
+    // Lines already in the cart follow price changes; stock is re-checked against the updated list on +/-
+    let cartChanged = false;
+    for (const item of cart) {
+        const p = products.find(x => x.id == item.id);
+        if (p && p.price !== item.price) {
+            item.price = p.price;
+            cartChanged = true;
+            syncCartLine(item.id, item.quantity); // the server cart re-reads the price of the line it is sent
+        }
+    }
+    if (cartChanged) renderCart();
+}
+
 function renderCategories() {
     const cats = ['all', ...new Set(products.map(p => p.category || 'others'))];
     const el = $('#categoryTabs');
@@ -127,11 +214,10 @@ function renderProductsGrid(list) {
     const grid = $('#productsGrid');
     const sortedList = [...list].sort((a, b) => (a.name || '').localeCompare(b.name || '', 'th')); // Simple sort for POS
     grid.innerHTML = sortedList.length ? sortedList.map(p => {
-        const thumbUrl = p.imageUrl || DEFAULT_PRODUCT_IMAGE;
-        const thumb = `<img src="${esc(thumbUrl)}" alt="${esc(p.name)}" class="product-thumb-img" onerror="this.src='${DEFAULT_PRODUCT_IMAGE}';">`;
+        const thumb = `<img ${productImageAttrs(p, DEFAULT_PRODUCT_IMAGE)} alt="${esc(p.name)}" class="product-thumb-img" loading="lazy">`;
         // No best seller badge on POS for now, as it relies on report data
         return `
-      <div class="product-card" data-id="${p.id}">
+      <div class="product-card${(p.stock ?? 0) > 0 ? '' : ' sold-out'}" data-id="${p.id}">
         <div class="product-thumb">${thumb}</div>
         <div class="product-name">${esc(p.name)}</div>
         <div class="product-price">฿${fmtBaht(p.price)}</div>
@@ -187,6 +273,7 @@ function addToCart(productId) {
         cart.push({ ...product, quantity: 1 });
     }
     renderCart();
+    syncCartLine(product.id, cart.find(item => item.id == productId).quantity);
 }
 
 function renderCart() {
@@ -197,7 +284,7 @@ function renderCart() {
         cartItemsDiv.innerHTML = cart.map(item => `
         <div class="cart-item">
           <div class="cart-item-info">
-            <div class="cart-item-thumb"><img src="${esc(item.imageUrl || 'https://via.placeholder.com/40?text=No')}" alt="${esc(item.name)}" onerror="this.src='https://via.placeholder.com/40?text=No';"></div>
+            <div class="cart-item-thumb"><img ${productImageAttrs(item, 'https://via.placeholder.com/40?text=No')} alt="${esc(item.name)}"></div>
             <div>
               <div class="cart-item-name">${esc(item.name)}</div>
               <div class="cart-item-details">฿${fmtBaht(item.price)} x ${item.quantity}</div>
@@ -220,9 +307,10 @@ function changeQuantity(productId, delta) {
     const p = products.find(x => x.id == productId);
     const newQty = item.quantity + delta;
     if (newQty <= 0) {
-        removeFromCart(productId);
+        return removeFromCart(productId);
     } else if (p && newQty <= (p.stock ?? 0)) {
         item.quantity = newQty;
+        syncCartLine(item.id, newQty);
     } else {
         toast('สต็อกไม่พอ');
     }
@@ -232,6 +320,7 @@ function changeQuantity(productId, delta) {
 function removeFromCart(productId) {
     cart = cart.filter(i => i.id != productId);
     renderCart();
+    syncCartLine(productId, 0);
 }
 
 function clearCart() {
@@ -239,6 +328,87 @@ function clearCart() {
     renderCart();
     currentCartSummary = null;
     updatePaymentSummaryDisplay();
+    discardServerCart();
+}
+
+// --- Server cart ---
+// Requests run one after another so absolute line quantities reach the server in the order they were made
+function queueCartSync(task) {
+    const run = cartSync.then(task);
+    cartSync = run.catch(() => {});
+    return run;
+}
+
+function cartCustomerQuery() {
+    const params = new URLSearchParams();
+    if (selectedCustomer?.id) params.append('customerId', selectedCustomer.id);
+    if (useLoyaltyCoupon) params.append('useCoupon', 'true');
+    return params.toString();
+}
+
+// Creates the server cart from the current lines: on first use, and again when the old one expired (404)
+async function createServerCart() {
+    const query = cartCustomerQuery();
+    const response = await fetch(`${API.carts}${query ? `?${query}` : ''}`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify(cart.map(item => ({ productId: item.id, quantity: item.quantity })))
+    });
+    if (!response.ok) throw new Error(await response.text());
+    const result = await response.json();
+    cartId = result.cartId;
+    cartCustomerKey = query;
+    if (result.errorMessage) {
+        // Lines the server could not take (stock changed meanwhile) follow the server cart
+        toast(result.errorMessage);
+        cart = cart.filter(item => result.items.some(line => line.productId == item.id));
+        for (const item of cart) {
+            item.quantity = result.items.find(line => line.productId == item.id).quantity;
+        }
+        renderCart();
+    }
+    return result;
+}
+
+// Sends one changed line (quantity 0 removes it); the answer carries the new subtotal, discount and points
+function syncCartLine(productId, quantity) {
+    return queueCartSync(async () => {
+        if (!cartId) {
+            if (cart.length > 0) currentCartSummary = await createServerCart();
+            return;
+        }
+        const response = await fetch(`${API.carts}/${cartId}/lines`, {
+            method: 'PATCH',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ productId, quantity })
+        });
+        if (response.status === 404) {
+            cartId = null;
+            if (cart.length > 0) currentCartSummary = await createServerCart();
+            return;
+        }
+        if (!response.ok && response.status !== 409) throw new Error(await response.text());
+        const result = await response.json();
+        if (response.status === 409) {
+            // Rejected (not enough stock): put the line back to what the server cart holds
+            toast(result.errorMessage);
+            const item = cart.find(i => i.id == productId);
+            if (item && result.line) item.quantity = result.line.quantity;
+            else if (item) cart = cart.filter(i => i.id != productId);
+            renderCart();
+        }
+        currentCartSummary = result;
+    }).catch(error => console.error('Cart sync failed:', error));
+}
+
+function discardServerCart() {
+    return queueCartSync(async () => {
+        if (!cartId) return;
+        const id = cartId;
+        cartId = null;
+        cartCustomerKey = '';
+        await fetch(`${API.carts}/${id}`, { method: 'DELETE' });
+    }).catch(error => console.error('Cart discard failed:', error));
 }
 
 // --- Payment ---
@@ -250,7 +420,7 @@ async function handlePayment() {
     const reviewItemsDiv = $('#paymentReviewItems');
     if (cart.length > 0) {
         const items = cart.map((item, index) => {
-            const imageUrl = esc(item.imageUrl || DEFAULT_PRODUCT_IMAGE);
+            const imageAttrs = productImageAttrs(item, DEFAULT_PRODUCT_IMAGE);
             const name = esc(item.name);
             const qty = item.quantity;
             const price = fmtBaht(item.price);
@@ -258,7 +428,7 @@ async function handlePayment() {
             return `
                 <div style="display:flex; align-items:center; gap:10px; margin-bottom:8px; background:white; border-radius:10px; padding:8px 10px;">
                     <div style="width:44px; height:44px; border-radius:8px; overflow:hidden; flex-shrink:0; background:#ffffff;">
-                        <img src="${imageUrl}" alt="${name}" style="width:100%; height:100%; object-fit:cover;" onerror="this.src='${DEFAULT_PRODUCT_IMAGE}';">
+                        <img ${imageAttrs} alt="${name}" style="width:100%; height:100%; object-fit:cover;">
                     </div>
                     <div style="flex:1;">
                         <div style="font-weight:600; color:#3e2723; font-size:0.95em;">${index + 1}. ${name}</div>
@@ -359,7 +529,9 @@ async function processPayment() {
         }
     }
 
+    // The server takes the lines from its own cart when cartId is sent; items are only used without one
     const payload = {
+        cartId,
         items: mapCartItemsForPayload(),
         paymentMethod: currentPaymentMethod,
         customerId: selectedCustomer?.id,
@@ -381,9 +553,13 @@ async function processPayment() {
         const result = await response.json();
 
         if (!result.success) {
+            currentCartSummary = null; // re-read (or re-create an expired) server cart before the next attempt
             return toast(result.errorMessage || result.message || 'ชำระเงินไม่สำเร็จ');
         }
 
+        // The server discarded the paid cart; the next sale starts a new one
+        cartId = null;
+        cartCustomerKey = '';
         clearCart();
         await loadProducts(); // Reload products to update stock
         // await loadCustomers(); // Customers might be updated with loyalty points, but not critical for POS
@@ -604,23 +780,26 @@ async function calculateCartSummary() {
         return currentCartSummary;
     }
 
-    const params = new URLSearchParams();
-    if (selectedCustomer?.id) params.append('customerId', selectedCustomer.id);
-    if (useLoyaltyCoupon) params.append('useCoupon', 'true');
-
-    const url = `${API.cart}/calculate${params.toString() ? `?${params.toString()}` : ''}`;
-
-    const response = await fetch(url, {
-        method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify(mapCartItemsForPayload())
+    // The server cart already holds the lines; only a customer/coupon change or a missing summary needs a request
+    await queueCartSync(async () => {
+        const query = cartCustomerQuery();
+        if (!cartId) {
+            currentCartSummary = await createServerCart();
+            return;
+        }
+        if (query === cartCustomerKey && currentCartSummary?.cartId === cartId) return;
+        const response = query === cartCustomerKey
+            ? await fetch(`${API.carts}/${cartId}`)
+            : await fetch(`${API.carts}/${cartId}${query ? `?${query}` : ''}`, { method: 'PATCH' });
+        if (response.status === 404) {
+            cartId = null;
+            currentCartSummary = await createServerCart();
+            return;
+        }
+        if (!response.ok) throw new Error(await response.text());
+        cartCustomerKey = query;
+        currentCartSummary = await response.json();
     });
-
-    if (!response.ok) {
-        throw new Error(await response.text());
-    }
-
-    currentCartSummary = await response.json();
     return currentCartSummary;
 }
 
@@ -636,7 +815,10 @@ function mapCartItemsForPayload() {
 }
 
 function updatePaymentSummaryDisplay(summary = currentCartSummary) {
-    const totalValue = summary?.total ?? cart.reduce((s, i) => s + i.price * i.quantity, 0);
+    // A summary that failed the stock check carries zero totals; show the cart's own sum instead
+    const totalValue = summary && summary.stockAvailable !== false
+        ? summary.total
+        : cart.reduce((s, i) => s + i.price * i.quantity, 0);
     $('#paymentModalTotal').textContent = fmtBaht(totalValue);
 
     const discountEl = $('#loyaltyDiscount');
@@ -63,8 +63,7 @@ function handleGlobalSearch(rawTerm) {
 // --- Products ---
 async function loadProducts() {
     try {
-        const r = await fetch(API.products);
-        products = r.ok ? await r.json() : [];
+        products = await fetchProducts([]);
         renderProductsTable();
     } catch (err) { console.error('Error loading products:', err); }
 }
@@ -81,7 +80,7 @@ function renderProductsTable(term = '') {
     $('#productsTable').innerHTML = list.map(p => `
       <tr>
         <td>${esc(p.code || '')}</td>
-        <td><div class="table-product-cell"><img src="${esc(p.imageUrl || 'https://via.placeholder.com/48x48?text=No')}" alt="${esc(p.name)}" class="table-product-image" onerror="this.src='https://via.placeholder.com/48x48?text=No';"> ${esc(p.name)}</div></td>
+        <td><div class="table-product-cell"><img ${productImageAttrs(p, 'https://via.placeholder.com/48x48?text=No')} alt="${esc(p.name)}" class="table-product-image" loading="lazy"> ${esc(p.name)}</div></td>
         <td>฿${fmtBaht(p.price)}</td>
         <td>${p.stock ?? 0}</td>
         <td>${esc(getCatName(p.category))}</td>
@@ -34,8 +34,7 @@ function updateSearchPlaceholder(sectionId) {
 // --- Settings ---
 async function loadSettings() {
     try {
-        const r = await fetch(API.settings);
-        settingsCache = r.ok ? await r.json() : {};
+        settingsCache = await fetchJsonRevalidated(API.settings, {});
         $('#shopName').value = settingsCache.shopName || '';
         $('#shopAddress').value = settingsCache.address || '';
         $('#shopPhone').value = settingsCache.phone || '';
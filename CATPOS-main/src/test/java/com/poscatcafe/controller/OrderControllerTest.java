@@ -0,0 +1,95 @@
+package com.poscatcafe.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.PaymentRequestDTO;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.service.PaymentService;
+import com.poscatcafe.service.ProductService;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * รายงานออเดอร์ระหว่างที่มีการชำระเงินพร้อมกัน ยอดรวม totalSales ต้องเท่ากับผลรวมของออเดอร์ในรายการเสมอ
+ */
+@PosIntegrationTest
+class OrderControllerTest {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void reportTotalMatchesTheListedOrdersDuringCheckouts() throws Exception {
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(context).build();
+        Long productId = product("REPORT-TOTAL");
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> payments = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                payments.add(pool.submit(() -> {
+                    PaymentRequestDTO request = new PaymentRequestDTO();
+                    request.setItems(List.of(new CartItemDTO(productId, null, null, 0, 1)));
+                    request.setPaymentMethod("cash");
+                    request.setCashReceived(100_000L);
+                    return Boolean.TRUE.equals(paymentService.processPayment(request).getSuccess());
+                }));
+            }
+
+            for (int i = 0; i < 20; i++) {
+                MvcResult started = mvc.perform(get("/api/orders/report")).andReturn();
+                MvcResult result = mvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+                JsonNode report = objectMapper.readTree(result.getResponse().getContentAsByteArray());
+
+                BigDecimal listed = BigDecimal.ZERO;
+                for (JsonNode order : report.get("orders")) {
+                    listed = listed.add(order.get("totalAmount").decimalValue());
+                }
+                assertThat(report.get("totalSales").decimalValue()).isEqualByComparingTo(listed);
+            }
+
+            for (Future<Boolean> payment : payments) {
+                assertThat(payment.get()).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Long product(String code) {
+        Product product = new Product();
+        product.setCode(code);
+        product.setName(code);
+        product.setPrice(35.25);
+        product.setStock(1_000);
+        return productService.save(product).getId();
+    }
+}
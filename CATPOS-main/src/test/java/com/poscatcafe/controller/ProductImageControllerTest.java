@@ -0,0 +1,67 @@
+package com.poscatcafe.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.poscatcafe.service.FileStorageService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+/**
+ * เสิร์ฟรูปสินค้าที่อัปโหลดก่อนเปลี่ยนมาตั้งชื่อตามแฮช: ชื่อเป็น UUID และนามสกุลตามไฟล์ของผู้ใช้ (เช่น .JPG, .jpeg)
+ */
+class ProductImageControllerTest {
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F'};
+
+    private final Path productImageDir = Paths.get("uploads", "products").toAbsolutePath();
+    private final String uuid = UUID.randomUUID().toString().replace("-", "");
+    private FileStorageService storageService;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        storageService = new FileStorageService(240, 800);
+        mvc = MockMvcBuilders.standaloneSetup(new ProductImageController(storageService)).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storageService.shutdown();
+        for (String ext : new String[] {".JPG", ".jpeg", ".exe"}) {
+            Files.deleteIfExists(productImageDir.resolve(uuid + ext));
+        }
+    }
+
+    @Test
+    void servesLegacyUploadsWhateverTheExtensionCase() throws Exception {
+        Files.write(productImageDir.resolve(uuid + ".JPG"), JPEG);
+        Files.write(productImageDir.resolve(uuid + ".jpeg"), JPEG);
+
+        for (String name : new String[] {uuid + ".JPG", uuid + ".jpeg"}) {
+            mvc.perform(get("/uploads/products/" + name))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Type", "image/jpeg"))
+                    .andExpect(header().string("ETag", "\"" + uuid + "\""))
+                    .andExpect(content().bytes(JPEG));
+        }
+    }
+
+    @Test
+    void rejectsNamesThatAreNotImages() throws Exception {
+        Files.write(productImageDir.resolve(uuid + ".exe"), JPEG);
+
+        mvc.perform(get("/uploads/products/" + uuid + ".exe")).andExpect(status().isNotFound());
+        mvc.perform(get("/uploads/products/" + uuid + ".png")).andExpect(status().isNotFound());
+    }
+}
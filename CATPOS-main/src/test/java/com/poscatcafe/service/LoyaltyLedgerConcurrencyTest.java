@@ -0,0 +1,132 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.model.Customer;
+import com.poscatcafe.repository.CustomerRepository;
+import com.poscatcafe.repository.LoyaltyLedgerRepository;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * สะสมและแลกแต้มของลูกค้าคนเดียวกันพร้อมกันหลายร้อยครั้ง แต้มคงเหลือต้องตรงกับผลรวมในสมุดบัญชีแต้มทุกแต้ม
+ */
+@PosIntegrationTest
+class LoyaltyLedgerConcurrencyTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private LoyaltyService loyaltyService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LoyaltyLedgerRepository ledgerRepository;
+
+    @Autowired
+    private LoyaltyAccrualService loyaltyAccrualService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void parallelEarnAndRedeemKeepBalanceEqualToLedger() throws Exception {
+        Long customerId = customer("0810000011");
+
+        // 300 ครั้งสะสม 7 แต้ม (รวม 2,100) ปนกับ 100 ครั้งแลกคูปองละ 100 แต้ม ซึ่งสำเร็จได้ไม่เกิน 21 ครั้ง
+        List<Callable<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            if (i % 4 == 3) {
+                calls.add(() -> loyaltyService.redeemCoupon(customerId));
+            } else {
+                calls.add(() -> {
+                    loyaltyService.addPoints(customerId, 7);
+                    return false;
+                });
+            }
+        }
+        long redeemed = runInParallel(calls).stream().filter(ok -> ok).count();
+
+        int balance = customerRepository.findPoints(customerId);
+        assertThat(redeemed).isLessThanOrEqualTo(21);
+        assertThat(balance).isEqualTo(300 * 7 - redeemed * LoyaltyService.POINTS_PER_COUPON);
+        assertThat((long) balance).isEqualTo(ledgerRepository.sumPoints(customerId));
+    }
+
+    @Test
+    void parallelRedeemsNeverOverdraw() throws Exception {
+        Long customerId = customer("0810000012");
+        loyaltyService.addPoints(customerId, 550);
+
+        List<Callable<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(() -> loyaltyService.redeemCoupon(customerId));
+        }
+        long redeemed = runInParallel(calls).stream().filter(ok -> ok).count();
+
+        assertThat(redeemed).isEqualTo(5);
+        assertThat(customerRepository.findPoints(customerId)).isEqualTo(50);
+        assertThat(ledgerRepository.sumPoints(customerId)).isEqualTo(50);
+    }
+
+    @Test
+    void redeliveredAccrualEventIsSkippedWithoutBlockingTheBatch() {
+        Long customerId = customer("0810000013");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> loyaltyAccrualService.enqueue(9_100_001L, customerId, 7));
+        loyaltyAccrualService.drain();
+
+        // เหตุการณ์ของออเดอร์เดิมถูกส่งมาซ้ำ (เช่น กู้คืนตาราง outbox) มาพร้อมกับเหตุการณ์ใหม่ในชุดเดียวกัน
+        jdbcTemplate.update("update loyalty_accrual_outbox set processed_at = null where order_id = ?", 9_100_001L);
+        transaction.executeWithoutResult(status -> loyaltyAccrualService.enqueue(9_100_002L, customerId, 5));
+        loyaltyAccrualService.drain();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from loyalty_accrual_outbox where processed_at is null", Long.class)).isZero();
+        assertThat(customerRepository.findPoints(customerId)).isEqualTo(12);
+        assertThat(ledgerRepository.sumPoints(customerId)).isEqualTo(12);
+    }
+
+    private Long customer(String phone) {
+        Customer customer = new Customer();
+        customer.setName("Ledger " + phone);
+        customer.setPhone(phone);
+        customer.setLoyaltyPoints(0);
+        return customerService.save(customer).getId();
+    }
+
+    private static List<Boolean> runInParallel(List<Callable<Boolean>> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(calls.size());
+            for (Callable<Boolean> call : calls) {
+                futures.add(pool.submit(call));
+            }
+            List<Boolean> results = new ArrayList<>(calls.size());
+            for (Future<Boolean> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.model.Order;
+import com.poscatcafe.model.OrderItem;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.repository.OrderRepository;
+import com.poscatcafe.repository.ProductRepository;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * จำนวนคิวรีของการโหลดออเดอร์ 1,000 รายการต้องคงที่ ไม่เพิ่มตามจำนวนออเดอร์หรือสินค้า (ไม่มี N+1)
+ */
+@PosIntegrationTest
+class OrderServiceQueryCountTest {
+    private static final int ORDERS = 1_000;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int PAGE_SIZE = 500;
+
+    // ร้านอื่นในฐานข้อมูลเดียวกันใช้วันที่ปัจจุบัน เทสต์นี้จึงใช้ช่วงวันในอดีตของตัวเอง
+    private static final LocalDate DAY = LocalDate.of(2020, 1, 15);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void createOrders() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (orderService.countBetween(DAY, DAY) > 0) {
+            return;
+        }
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product product = new Product();
+            product.setCode("QC-" + i);
+            product.setName("Query count " + i);
+            product.setPrice(10);
+            product.setStock(0);
+            products.add(productRepository.save(product));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setReceiptNo("QC" + i);
+            order.setOrderDate(DAY.atTime(8, 0).plusSeconds(i));
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                OrderItem item = new OrderItem();
+                item.setProduct(products.get((i + j) % products.size()));
+                item.setQuantity(1);
+                item.setPrice(1_000);
+                item.setSubtotal(1_000);
+                order.getItems().add(item);
+            }
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+    }
+
+    @Test
+    void rangeLoadIsOneStatement() {
+        statistics.clear();
+        int touched = transaction.execute(status -> {
+            int names = 0;
+            for (Order order : orderService.between(DAY, DAY)) {
+                for (OrderItem item : order.getItems()) {
+                    names += item.getProduct().getName().isEmpty() ? 0 : 1;
+                }
+            }
+            return names;
+        });
+
+        assertThat(touched).isEqualTo(ORDERS * ITEMS_PER_ORDER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamCostsAFewStatementsPerPage() {
+        statistics.clear();
+        AtomicInteger orders = new AtomicInteger();
+        AtomicInteger names = new AtomicInteger();
+        orderService.streamBetween(DAY, DAY, PAGE_SIZE, order -> {
+            orders.incrementAndGet();
+            for (OrderItem item : order.getItems()) {
+                names.addAndGet(item.getProduct().getName().isEmpty() ? 0 : 1);
+            }
+        });
+
+        assertThat(orders.get()).isEqualTo(ORDERS);
+        assertThat(names.get()).isEqualTo(ORDERS * ITEMS_PER_ORDER);
+        // ต่อหน้า 500 ออเดอร์: หน้าออเดอร์ 1 + รายการสินค้าทีละ 100 ออเดอร์ 5 + สินค้า 1 (batch fetch)
+        // สองหน้าเต็มแล้วหน้าว่างปิดท้าย = 2 * 7 + 1 ไม่ว่าจะมีออเดอร์หรือสินค้าเท่าใด
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2 * 7 + 1);
+    }
+}
@@ -0,0 +1,91 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.CartSessionDTO;
+import com.poscatcafe.dto.PaymentRequestDTO;
+import com.poscatcafe.dto.PaymentResponseDTO;
+import com.poscatcafe.model.Order;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+
+/**
+ * ชำระเงินจากตะกร้าฝั่งเซิร์ฟเวอร์: รายการและราคามาจากตะกร้าของผู้ใช้ ไม่ใช่จากที่เครื่องขายส่งมา
+ * ตะกร้าของผู้ใช้อื่นใช้ไม่ได้ และตะกร้าถูกทิ้งหลังชำระเงินสำเร็จ
+ */
+@PosIntegrationTest
+class PaymentServiceCartTest {
+    private static final Long CASHIER = 1L;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CartSessionService cartSessionService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void chargesTheServerCartInsteadOfTheClientLines() {
+        Long latte = product("CART-LATTE", 45.50);
+        Long cake = product("CART-CAKE", 80);
+        CartSessionDTO cart = cartSessionService.create(CASHIER, List.of(line(latte, 2)), null, false);
+
+        // The client claims a different line at a price of its own; only the server cart counts
+        PaymentRequestDTO request = request(cart.getCartId(), List.of(new CartItemDTO(cake, null, null, 1, 5)));
+        PaymentResponseDTO response = paymentService.processPayment(request, CASHIER);
+
+        assertThat(response.getSuccess()).isTrue();
+        Order order = orderService.getWithItems(response.getOrderId());
+        assertThat(order.getTotalAmount()).isEqualTo(9_100L);
+        assertThat(order.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getProduct().getId()).isEqualTo(latte);
+            assertThat(item.getQuantity()).isEqualTo(2);
+            assertThat(item.getPrice()).isEqualTo(4_550L);
+        });
+        assertThat(cartSessionService.get(cart.getCartId(), CASHIER)).isNull();
+    }
+
+    @Test
+    void rejectsAnotherUsersCart() {
+        Long latte = product("CART-OTHER", 45.50);
+        CartSessionDTO cart = cartSessionService.create(CASHIER, List.of(line(latte, 1)), null, false);
+
+        PaymentResponseDTO response = paymentService.processPayment(request(cart.getCartId(), List.of()), 2L);
+
+        assertThat(response.getSuccess()).isFalse();
+        assertThat(response.getOrderId()).isNull();
+        assertThat(cartSessionService.get(cart.getCartId(), CASHIER)).isNotNull();
+    }
+
+    private static PaymentRequestDTO request(String cartId, List<CartItemDTO> items) {
+        PaymentRequestDTO request = new PaymentRequestDTO();
+        request.setCartId(cartId);
+        request.setItems(items);
+        request.setPaymentMethod("cash");
+        request.setCashReceived(100_000L);
+        return request;
+    }
+
+    private static CartItemDTO line(Long productId, int quantity) {
+        return new CartItemDTO(productId, null, null, 0, quantity);
+    }
+
+    private Long product(String code, double price) {
+        Product product = new Product();
+        product.setCode(code);
+        product.setName(code);
+        product.setPrice(price);
+        product.setStock(100);
+        return productService.save(product).getId();
+    }
+}
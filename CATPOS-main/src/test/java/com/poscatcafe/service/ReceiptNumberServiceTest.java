@@ -0,0 +1,141 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.PaymentRequestDTO;
+import com.poscatcafe.dto.PaymentResponseDTO;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.repository.ReceiptSequenceRepository;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ออกเลขที่ใบเสร็จจากหลายเธรดพร้อมกัน ด้วยบล็อกขนาดเล็กและ connection pool เล็ก
+ * เพื่อให้บล็อกหมดบ่อยและต้องจองแบบ synchronous อยู่ตลอด
+ */
+@PosIntegrationTest
+@TestPropertySource(properties = {
+        "pos.receipt.block-size=2",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=5000"})
+class ReceiptNumberServiceTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private ReceiptNumberService receiptNumberService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReceiptSequenceRepository receiptSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void parallelCallersNeverGetTheSameNumber() throws Exception {
+        int calls = 5_000;
+        List<String> numbers = runInParallel(calls, receiptNumberService::next);
+
+        Set<String> unique = new HashSet<>(numbers);
+        assertThat(unique).hasSize(calls);
+        String today = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        assertThat(numbers).allMatch(number -> number.matches("R" + today + "\\d{6}"));
+    }
+
+    @Test
+    void twoInstancesStartingTheSameDayNeverShareNumbers() throws Exception {
+        // สองอินสแตนซ์ใช้ตาราง receipt_sequence เดียวกัน และออกใบเสร็จแรกของแต่ละวันพร้อมกัน
+        // (ไม่มีแถวของวันนั้น ทั้งคู่จึงต้องสร้างแถวเอง)
+        ReceiptNumberService first = new ReceiptNumberService(receiptSequenceRepository, transactionManager, "R", 2);
+        ReceiptNumberService second = new ReceiptNumberService(receiptSequenceRepository, transactionManager, "R", 2);
+        try {
+            List<String> numbers = new ArrayList<>();
+            LocalDate day = LocalDate.of(2099, 1, 1);
+            for (int i = 0; i < 50; i++, day = day.plusDays(1)) {
+                LocalDate sameDay = day;
+                CountDownLatch start = new CountDownLatch(1);
+                numbers.addAll(runInParallel(THREADS, () -> {
+                    start.await();
+                    return (Thread.currentThread().getId() % 2 == 0 ? first : second).next(sameDay);
+                }, start));
+            }
+
+            assertThat(new HashSet<>(numbers)).hasSize(numbers.size());
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    void parallelPaymentsDoNotExhaustThePool() throws Exception {
+        Product product = new Product();
+        product.setCode("RECEIPT-LOAD");
+        product.setName("Receipt load");
+        product.setPrice(10);
+        product.setStock(1_000);
+        Long productId = productService.save(product).getId();
+
+        // ชำระเงินพร้อมกันมากกว่าจำนวน connection หลายเท่า หากการจองเลขต้องใช้ connection ที่สอง
+        // ระหว่างถือ connection ของการชำระเงิน คำขอจะรอกันเองจนหมดเวลาและล้มเหลว
+        List<String> results = runInParallel(200, () -> {
+            PaymentRequestDTO request = new PaymentRequestDTO();
+            request.setItems(List.of(new CartItemDTO(productId, null, null, 0, 1)));
+            request.setPaymentMethod("cash");
+            request.setCashReceived(100_000L);
+            PaymentResponseDTO response = paymentService.processPayment(request);
+            return Boolean.TRUE.equals(response.getSuccess()) ? "ok" : response.getErrorMessage();
+        });
+
+        assertThat(results).containsOnly("ok");
+        assertThat(productService.get(productId).getStock()).isEqualTo(800);
+    }
+
+    private static List<String> runInParallel(int calls, Callable<String> call) throws Exception {
+        return runInParallel(calls, call, null);
+    }
+
+    /**
+     * เรียกพร้อมกันจากหลายเธรด หากระบุ start ทุกการเรียกจะถูกส่งเข้าคิวก่อนแล้วจึงปล่อยพร้อมกัน
+     */
+    private static List<String> runInParallel(int calls, Callable<String> call, CountDownLatch start) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>(calls);
+            for (int i = 0; i < calls; i++) {
+                futures.add(pool.submit(call));
+            }
+            if (start != null) {
+                start.countDown();
+            }
+            List<String> results = new ArrayList<>(calls);
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.PaymentRequestDTO;
+import com.poscatcafe.model.DailySalesSummary;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.repository.DailySalesSummaryRepository;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * คำนวณตารางสรุปใหม่ระหว่างที่มีการชำระเงินพร้อมกัน ยอดสรุปของวันต้องตรงกับออเดอร์จริงทุกครั้ง
+ * (ไม่มีออเดอร์ถูกนับซ้ำหรือหายไปเพราะ commit ระหว่างการคำนวณใหม่)
+ */
+@PosIntegrationTest
+class SalesRollupServiceTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private DailySalesSummaryRepository dailyRepo;
+
+    @Test
+    void rebuildDuringCheckoutsKeepsTheRollupExact() throws Exception {
+        Long productId = product("ROLLUP-REBUILD");
+
+        List<Boolean> results = runInParallel(300, i -> {
+            if (i % 25 == 0) {
+                salesRollupService.rebuild();
+                return true;
+            }
+            PaymentRequestDTO request = new PaymentRequestDTO();
+            request.setItems(List.of(new CartItemDTO(productId, null, null, 0, 1)));
+            request.setPaymentMethod("cash");
+            request.setCashReceived(100_000L);
+            return Boolean.TRUE.equals(paymentService.processPayment(request).getSuccess());
+        });
+
+        assertThat(results).containsOnly(true);
+        LocalDate today = LocalDate.now();
+        DailySalesSummary summary = dailyRepo.findById(today).orElseThrow();
+        assertThat(summary.getOrderCount()).isEqualTo(orderService.countBetween(today, today));
+        assertThat(summary.getTotalSales()).isEqualTo(orderService.totalSalesBetween(today, today));
+    }
+
+    private Long product(String code) {
+        Product product = new Product();
+        product.setCode(code);
+        product.setName(code);
+        product.setPrice(35.25);
+        product.setStock(1_000);
+        return productService.save(product).getId();
+    }
+
+    private interface Task {
+        Boolean run(int index) throws Exception;
+    }
+
+    private static List<Boolean> runInParallel(int calls, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(calls);
+            for (int i = 0; i < calls; i++) {
+                int index = i;
+                Callable<Boolean> call = () -> task.run(index);
+                futures.add(pool.submit(call));
+            }
+            List<Boolean> results = new ArrayList<>(calls);
+            for (Future<Boolean> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
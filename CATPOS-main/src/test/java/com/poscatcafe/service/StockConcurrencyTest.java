@@ -0,0 +1,97 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.PaymentRequestDTO;
+import com.poscatcafe.dto.PaymentResponseDTO;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.repository.ProductRepository;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ชำระเงินพร้อมกันหลายร้อยรายการที่สินค้าชิ้นเดียวกัน สต็อกต้องไม่ติดลบและต้องขายไม่เกินที่มี
+ */
+@PosIntegrationTest
+class StockConcurrencyTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void parallelPaymentsNeverOversell() throws Exception {
+        Long productId = product("STOCK-PAY", 50);
+
+        List<Boolean> results = runInParallel(300, () -> {
+            PaymentRequestDTO request = new PaymentRequestDTO();
+            request.setItems(List.of(new CartItemDTO(productId, null, null, 0, 1)));
+            request.setPaymentMethod("cash");
+            request.setCashReceived(100_000L);
+            PaymentResponseDTO response = paymentService.processPayment(request);
+            return Boolean.TRUE.equals(response.getSuccess());
+        });
+
+        assertThat(results.stream().filter(ok -> ok).count()).isEqualTo(50);
+        assertThat(productRepository.findById(productId).orElseThrow().getStock()).isZero();
+        assertThat(productService.get(productId).getStock()).isZero();
+    }
+
+    @Test
+    void parallelDecrementsNeverGoNegative() throws Exception {
+        Long productId = product("STOCK-DEC", 100);
+
+        List<Boolean> results = runInParallel(200, () ->
+                transaction.execute(status -> productRepository.decrementStock(productId, 3)) == 1);
+
+        long sold = results.stream().filter(ok -> ok).count();
+        // 33 ครั้งละ 3 ชิ้นหมดได้ 99 ชิ้น เหลือ 1 ชิ้นที่หักอีกไม่ได้
+        assertThat(sold).isEqualTo(33);
+        assertThat(productRepository.findById(productId).orElseThrow().getStock()).isEqualTo(1);
+    }
+
+    private Long product(String code, int stock) {
+        Product product = new Product();
+        product.setCode(code);
+        product.setName(code);
+        product.setPrice(10);
+        product.setStock(stock);
+        return productService.save(product).getId();
+    }
+
+    private static List<Boolean> runInParallel(int calls, Callable<Boolean> call) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(calls);
+            for (int i = 0; i < calls; i++) {
+                futures.add(pool.submit(call));
+            }
+            List<Boolean> results = new ArrayList<>(calls);
+            for (Future<Boolean> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
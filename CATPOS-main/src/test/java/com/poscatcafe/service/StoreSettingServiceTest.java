@@ -0,0 +1,95 @@
+package com.poscatcafe.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poscatcafe.dto.CartItemDTO;
+import com.poscatcafe.dto.PaymentRequestDTO;
+import com.poscatcafe.dto.PaymentResponseDTO;
+import com.poscatcafe.model.Product;
+import com.poscatcafe.model.StoreSetting;
+import com.poscatcafe.support.PosIntegrationTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+
+/**
+ * ชำระเงินและออกใบเสร็จด้วยการตั้งค่าร้านจาก snapshot: ไม่อ่านตารางการตั้งค่าระหว่างชำระเงิน
+ * และใบเสร็จถัดไปใช้ค่าที่เพิ่งบันทึกทันที
+ */
+@PosIntegrationTest
+class StoreSettingServiceTest {
+    @Autowired
+    private StoreSettingService storeSettingService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void checkoutReadsSettingsFromTheSnapshot() {
+        storeSettingService.save(setting("Smoke Cat Cafe", "0899999999"));
+        Long productId = product("SETTINGS-SMOKE");
+        EntityStatistics settingReads = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics()
+                .getEntityStatistics(StoreSetting.class.getName());
+        long loadsBefore = settingReads.getLoadCount();
+
+        PaymentResponseDTO cash = pay(productId, "cash");
+        PaymentResponseDTO qr = pay(productId, "qr");
+
+        assertThat(cash.getSuccess()).isTrue();
+        assertThat(cash.getReceiptHtml()).contains("Smoke Cat Cafe");
+        assertThat(qr.getSuccess()).isTrue();
+        assertThat(qr.getQrCodeImage()).isNotEmpty();
+        assertThat(settingReads.getLoadCount()).isEqualTo(loadsBefore);
+    }
+
+    @Test
+    void savedSettingsAppearOnTheNextReceipt() {
+        Long productId = product("SETTINGS-UPDATE");
+        storeSettingService.save(setting("Before Rename", "0899999999"));
+        long version = storeSettingService.version();
+        assertThat(pay(productId, "cash").getReceiptHtml()).contains("Before Rename");
+
+        storeSettingService.save(setting("After Rename", "0899999999"));
+
+        assertThat(storeSettingService.version()).isGreaterThan(version);
+        assertThat(pay(productId, "cash").getReceiptHtml()).contains("After Rename").doesNotContain("Before Rename");
+    }
+
+    private PaymentResponseDTO pay(Long productId, String method) {
+        PaymentRequestDTO request = new PaymentRequestDTO();
+        request.setItems(List.of(new CartItemDTO(productId, null, null, 0, 1)));
+        request.setPaymentMethod(method);
+        request.setCashReceived(100_000L);
+        return paymentService.processPayment(request);
+    }
+
+    private Long product(String code) {
+        Product product = new Product();
+        product.setCode(code);
+        product.setName(code);
+        product.setPrice(45);
+        product.setStock(100);
+        return productService.save(product).getId();
+    }
+
+    private static StoreSetting setting(String shopName, String promptpayId) {
+        StoreSetting setting = new StoreSetting();
+        setting.setShopName(shopName);
+        setting.setAddress("1 Test Road");
+        setting.setPhone("020000000");
+        setting.setTaxId("0105500000000");
+        setting.setPromptpayId(promptpayId);
+        return setting;
+    }
+}
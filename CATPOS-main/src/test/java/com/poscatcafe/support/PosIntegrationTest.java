@@ -0,0 +1,21 @@
+package com.poscatcafe.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * เทสต์ที่เปิดแอปพลิเคชันเต็มรูปแบบบน PostgreSQL แบบฝังตัว ทุกเทสต์ใช้ context และฐานข้อมูลร่วมกัน
+ * จึงควรสร้างข้อมูลด้วยรหัสที่ไม่ซ้ำกับเทสต์อื่น (ค่าตั้งเฉพาะเทสต์อยู่ใน application-test.properties)
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+public @interface PosIntegrationTest {
+}